@@ -0,0 +1,154 @@
+package koo.stock.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactory;
+import koo.stock.StockApplication;
+import koo.stock.domain.Stock;
+import koo.stock.reactive.ReactiveStockService;
+import koo.stock.repository.StockRepository;
+import koo.stock.service.ConditionalUpdateStockService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+
+/**
+ * servlet(blocking) 방식과 reactive 방식의 조건부 update를 in-flight 요청 수별로 비교
+ * SERVLET은 Tomcat 기본 max-threads(200) 크기의 스레드 풀 + JDBC(Hikari), REACTIVE는 스레드 없이 R2DBC로 보낸다.
+ * 요청당 메모리는 -prof gc 의 gc.alloc.rate.norm(호출 1번 = inFlight개 요청)을 inFlight로 나누어 보고,
+ * 사용한 커넥션 수는 iteration마다 측정한 최대 사용 커넥션 수를 보조 지표(peakConnections)로 함께 보고한다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class ReactiveBenchmark {
+
+    private static final int SERVLET_THREADS = 200;
+    private static final int KEY_COUNT = 1_000;
+    private static final long INITIAL_QUANTITY = 1_000_000_000L;
+
+    @Param({"SERVLET", "REACTIVE"})
+    private String stack;
+
+    @Param({"200", "1000", "5000"})
+    private int inFlight;
+
+    private ConfigurableApplicationContext context;
+    private StockRepository stockRepository;
+    private ConditionalUpdateStockService conditionalUpdateStockService;
+    private ReactiveStockService reactiveStockService;
+    private ExecutorService executorService;
+    private ScheduledExecutorService sampler;
+    private IntSupplier connectionsInUse;
+    private final AtomicInteger peakConnections = new AtomicInteger();
+    private Long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(StockApplication.class)
+                .profiles("bench")
+                .properties("stock.reactive.max-in-flight-per-key=" + Integer.MAX_VALUE) // 비교를 위해 거절하지 않는다.
+                .run();
+        stockRepository = context.getBean(StockRepository.class);
+        conditionalUpdateStockService = context.getBean(ConditionalUpdateStockService.class);
+        reactiveStockService = context.getBean(ReactiveStockService.class);
+        executorService = Executors.newFixedThreadPool(SERVLET_THREADS);
+
+        if ("SERVLET".equals(stack)) {
+            HikariDataSource dataSource = context.getBean(HikariDataSource.class);
+            connectionsInUse = () -> dataSource.getHikariPoolMXBean().getActiveConnections();
+        } else {
+            ConnectionPool pool = (ConnectionPool) context.getBean(ConnectionFactory.class);
+            connectionsInUse = () -> pool.getMetrics().map(PoolMetrics::acquiredSize).orElse(0);
+        }
+        sampler = Executors.newSingleThreadScheduledExecutor();
+        sampler.scheduleAtFixedRate(() -> peakConnections.accumulateAndGet(connectionsInUse.getAsInt(), Math::max),
+                0, 1, TimeUnit.MILLISECONDS);
+
+        List<Stock> stocks = new ArrayList<>(KEY_COUNT);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            stocks.add(new Stock((long) i, INITIAL_QUANTITY));
+        }
+        ids = stockRepository.saveAllAndFlush(stocks).stream()
+                .map(Stock::getId)
+                .toArray(Long[]::new);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPeakConnections() {
+        peakConnections.set(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sampler.shutdownNow();
+        executorService.shutdownNow();
+        stockRepository.deleteAll();
+        context.close();
+    }
+
+    /**
+     * JMH 결과에 점수와 함께 출력되는 보조 지표 (EVENTS 타입은 iteration이 끝났을 때의 값을 그대로 보고한다)
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Connections {
+
+        public long peakConnections;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            peakConnections = 0;
+        }
+
+    }
+
+    @Benchmark
+    public void decreaseInFlight(Connections connections) throws InterruptedException {
+        try {
+            runInFlight();
+        } finally {
+            connections.peakConnections = peakConnections.get(); // 이번 iteration에서 지금까지의 최대값
+        }
+    }
+
+    private void runInFlight() throws InterruptedException {
+        if ("REACTIVE".equals(stack)) {
+            Flux.range(0, inFlight)
+                    .flatMap(i -> reactiveStockService.decrease(randomId(), 1L, "conditional"), inFlight) // inFlight개를 동시에 구독
+                    .blockLast();
+            return;
+        }
+
+        CountDownLatch latch = new CountDownLatch(inFlight);
+        for (int i = 0; i < inFlight; i++) {
+            Long id = randomId();
+
+            executorService.submit(() -> {
+                try {
+                    conditionalUpdateStockService.decrease(id, 1L);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+    }
+
+    private Long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+}
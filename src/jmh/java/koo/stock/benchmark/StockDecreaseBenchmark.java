@@ -0,0 +1,129 @@
+package koo.stock.benchmark;
+
+import koo.stock.StockApplication;
+import koo.stock.domain.Stock;
+import koo.stock.repository.RedisStockRepository;
+import koo.stock.repository.StockRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 재고 감소 전략별 처리량(ops/s)과 지연시간(p50/p99/p99.9) 비교
+ * 스레드 수는 JMH 파라미터로 줄 수 없으므로 스레드 수별로 벤치마크 메서드를 나누었다.
+ * HOT: 모든 스레드가 하나의 id에 몰리는 경우, SPREAD: 여러 id에 고르게 분산되는 경우
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class StockDecreaseBenchmark {
+
+    private static final int SPREAD_KEY_COUNT = 1_000;
+    private static final long INITIAL_QUANTITY = 1_000_000_000L; // 측정 중 재고가 소진되지 않도록 충분히 큰 값
+
+    @Param({"SYNCHRONIZED", "PESSIMISTIC", "OPTIMISTIC", "NAMED", "LETTUCE", "REDISSON", "CONDITIONAL", "COALESCING", "REDIS_COUNTER", "JOURNAL", "DISPATCH", "ROUTED"})
+    private String strategy;
+
+    @Param({"HOT", "SPREAD"})
+    private String distribution;
+
+    @Param({"1", "10"})
+    private long quantity;
+
+    private ConfigurableApplicationContext context;
+    private StockRepository stockRepository;
+    private StockDecreaser decreaser;
+    private Long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(StockApplication.class)
+                .profiles("bench")
+                .run();
+        stockRepository = context.getBean(StockRepository.class);
+        decreaser = StockDecreaser.of(context, strategy);
+
+        int keyCount = "HOT".equals(distribution) ? 1 : SPREAD_KEY_COUNT;
+        List<Stock> stocks = new ArrayList<>(keyCount);
+        for (int i = 0; i < keyCount; i++) {
+            stocks.add(new Stock((long) i, INITIAL_QUANTITY));
+        }
+        ids = stockRepository.saveAllAndFlush(stocks).stream()
+                .map(Stock::getId)
+                .toArray(Long[]::new);
+
+        if ("REDIS_COUNTER".equals(strategy)) { // 이전 실행에서 남은 Redis 수량을 새로 만든 Stock 기준으로 맞춘다.
+            RedisStockRepository redisStockRepository = context.getBean(RedisStockRepository.class);
+            for (Long id : ids) {
+                redisStockRepository.reconcile(id, INITIAL_QUANTITY);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        stockRepository.deleteAll();
+        context.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput_01_threads() throws InterruptedException {
+        decrease();
+    }
+
+    @Benchmark
+    @Threads(8)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput_08_threads() throws InterruptedException {
+        decrease();
+    }
+
+    @Benchmark
+    @Threads(32)
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public void throughput_32_threads() throws InterruptedException {
+        decrease();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @BenchmarkMode(Mode.SampleTime) // p50, p99, p99.9 백분위수를 함께 출력한다.
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void latency_01_threads() throws InterruptedException {
+        decrease();
+    }
+
+    @Benchmark
+    @Threads(8)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void latency_08_threads() throws InterruptedException {
+        decrease();
+    }
+
+    @Benchmark
+    @Threads(32)
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void latency_32_threads() throws InterruptedException {
+        decrease();
+    }
+
+    private void decrease() throws InterruptedException {
+        Long id = ids.length == 1 ? ids[0] : ids[ThreadLocalRandom.current().nextInt(ids.length)];
+
+        decreaser.decrease(id, quantity);
+    }
+
+}
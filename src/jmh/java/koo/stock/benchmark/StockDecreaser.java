@@ -0,0 +1,43 @@
+package koo.stock.benchmark;
+
+import koo.stock.facade.CoalescingStockFacade;
+import koo.stock.facade.DispatchingStockFacade;
+import koo.stock.facade.LettuceLockStockFacade;
+import koo.stock.facade.NamedLockStockFacade;
+import koo.stock.facade.OptimisticLockStockFacade;
+import koo.stock.facade.RedisCounterStockFacade;
+import koo.stock.facade.RedissonLockStockFacade;
+import koo.stock.service.ConditionalUpdateStockService;
+import koo.stock.service.JournalStockService;
+import koo.stock.service.PessimisticLockStockService;
+import koo.stock.service.StockService;
+import koo.stock.strategy.StockStrategyRouter;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * 벤치마크 파라미터로 받은 전략 이름을 실제 재고 감소 호출로 연결
+ */
+@FunctionalInterface
+interface StockDecreaser {
+
+    void decrease(Long id, Long quantity) throws InterruptedException;
+
+    static StockDecreaser of(ApplicationContext context, String strategy) {
+        return switch (strategy) {
+            case "SYNCHRONIZED" -> context.getBean(StockService.class)::decrease;
+            case "PESSIMISTIC" -> context.getBean(PessimisticLockStockService.class)::decrease;
+            case "OPTIMISTIC" -> context.getBean(OptimisticLockStockFacade.class)::decrease;
+            case "NAMED" -> context.getBean(NamedLockStockFacade.class)::decrease;
+            case "LETTUCE" -> context.getBean(LettuceLockStockFacade.class)::decrease;
+            case "REDISSON" -> context.getBean(RedissonLockStockFacade.class)::decrease;
+            case "CONDITIONAL" -> context.getBean(ConditionalUpdateStockService.class)::decrease;
+            case "COALESCING" -> context.getBean(CoalescingStockFacade.class)::decrease;
+            case "REDIS_COUNTER" -> context.getBean(RedisCounterStockFacade.class)::decrease;
+            case "ROUTED" -> context.getBean(StockStrategyRouter.class)::decrease;
+            case "DISPATCH" -> context.getBean(DispatchingStockFacade.class)::decrease;
+            case "JOURNAL" -> context.getBean(JournalStockService.class)::decrease;
+            default -> throw new IllegalArgumentException("알 수 없는 전략: " + strategy);
+        };
+    }
+
+}
@@ -0,0 +1,101 @@
+package koo.stock.benchmark;
+
+import koo.stock.StockApplication;
+import koo.stock.domain.Stock;
+import koo.stock.repository.StockRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 동시에 처리중인(in-flight) 재고 감소 요청 수를 늘렸을 때 platform thread와 virtual thread의 차이 비교
+ * PLATFORM은 Tomcat 기본 max-threads(200)와 같은 크기의 고정 스레드 풀로, 그 이상은 큐에서 대기한다.
+ * 한번의 호출(batch)은 inFlight개의 요청을 동시에 보내고 모두 끝날 때까지 기다린다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class VirtualThreadBenchmark {
+
+    private static final int PLATFORM_THREAD_CEILING = 200;
+    private static final int KEY_COUNT = 1_000;
+    private static final long INITIAL_QUANTITY = 1_000_000_000L;
+
+    @Param({"PLATFORM", "VIRTUAL"})
+    private String threads;
+
+    @Param({"200", "1000", "5000"})
+    private int inFlight;
+
+    @Param({"OPTIMISTIC", "LETTUCE", "REDISSON"})
+    private String strategy;
+
+    private ConfigurableApplicationContext context;
+    private StockRepository stockRepository;
+    private StockDecreaser decreaser;
+    private ExecutorService executorService;
+    private Long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        boolean virtual = "VIRTUAL".equals(threads);
+
+        context = new SpringApplicationBuilder(StockApplication.class)
+                .profiles("bench")
+                .properties("spring.threads.virtual.enabled=" + virtual)
+                .run();
+        stockRepository = context.getBean(StockRepository.class);
+        decreaser = StockDecreaser.of(context, strategy);
+        executorService = virtual
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREAD_CEILING);
+
+        List<Stock> stocks = new ArrayList<>(KEY_COUNT);
+        for (int i = 0; i < KEY_COUNT; i++) {
+            stocks.add(new Stock((long) i, INITIAL_QUANTITY));
+        }
+        ids = stockRepository.saveAllAndFlush(stocks).stream()
+                .map(Stock::getId)
+                .toArray(Long[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executorService.shutdownNow();
+        stockRepository.deleteAll();
+        context.close();
+    }
+
+    @Benchmark
+    public void decreaseInFlight() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(inFlight);
+
+        for (int i = 0; i < inFlight; i++) {
+            Long id = ids[ThreadLocalRandom.current().nextInt(ids.length)];
+
+            executorService.submit(() -> {
+                try {
+                    decreaser.decrease(id, 1L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+    }
+
+}
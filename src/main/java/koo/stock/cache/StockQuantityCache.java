@@ -0,0 +1,176 @@
+package koo.stock.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.RedisStockRepository;
+import koo.stock.repository.StockRepository;
+import koo.stock.service.JournalStockService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 재고 조회용 read-through 캐시 (로컬 Caffeine -> Redis(선택) -> 수량을 들고 있는 곳 순서로 조회, 예약된 수량을 뺀 판매 가능한 수량)
+ * 어느 전략으로든 재고가 바뀌면 StockChangedEvent를 받아 commit 이후에 갱신하거나 무효화한다.
+ * commit 이후 이벤트는 도착 순서가 보장되지 않으므로, 캐시된 값보다 오래된 version의 이벤트는 버리고
+ * version이 없는 이벤트(Redis counter, journal, shard)는 순서를 알 수 없어 값을 넣지 않고 무효화한다.
+ * 다른 서버의 로컬 캐시는 TTL이 지나야 갱신되므로, 조회 결과는 "대략적인" 재고로 취급해야 한다.
+ */
+@Component
+public class StockQuantityCache {
+
+    // 저장된 version보다 새로운 경우에만 덮어쓴다. (값은 "수량:version", version을 모르면 "수량:")
+    private static final RedisScript<Long> PUT_IF_NEWER_SCRIPT = new DefaultRedisScript<>("""
+            local current = redis.call('get', KEYS[1])
+            if current then
+                local version = string.match(current, ':(%d+)$')
+                if version and tonumber(version) >= tonumber(ARGV[2]) then return 0 end
+            end
+            redis.call('set', KEYS[1], ARGV[1] .. ':' .. ARGV[2], 'PX', ARGV[3])
+            return 1
+            """, Long.class);
+
+    private final StockRepository stockRepository;
+    private final RedisStockRepository redisStockRepository;
+    private final JournalStockService journalStockService;
+    private final RedisTemplate<String, String> redisTemplate;
+    private final boolean redisEnabled;
+    private final Duration redisTtl;
+    private final Cache<Long, Cached> localCache;
+
+    public StockQuantityCache(StockRepository stockRepository,
+                              RedisStockRepository redisStockRepository,
+                              JournalStockService journalStockService,
+                              RedisTemplate<String, String> redisTemplate,
+                              @Value("${stock.cache.maximum-size:100000}") long maximumSize,
+                              @Value("${stock.cache.local-ttl-millis:1000}") long localTtlMillis,
+                              @Value("${stock.cache.redis.enabled:false}") boolean redisEnabled,
+                              @Value("${stock.cache.redis.ttl-millis:10000}") long redisTtlMillis) {
+        this.stockRepository = stockRepository;
+        this.redisStockRepository = redisStockRepository;
+        this.journalStockService = journalStockService;
+        this.redisTemplate = redisTemplate;
+        this.redisEnabled = redisEnabled;
+        this.redisTtl = Duration.ofMillis(redisTtlMillis);
+        this.localCache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(localTtlMillis))
+                .build();
+    }
+
+    public Long getQuantity(Long id) {
+        return findCachedQuantity(id).orElseGet(() -> {
+            Long quantity = load(id);
+            putIfAbsent(id, quantity); // 조회하는 동안 이벤트로 들어온 값이 있으면 그 값을 남긴다.
+
+            return quantity;
+        });
+    }
+
+    /**
+     * DB를 조회하지 않고 캐시에 있는 값만 반환
+     */
+    public Optional<Long> findCachedQuantity(Long id) {
+        Cached cached = localCache.getIfPresent(id);
+
+        if (cached == null && redisEnabled) {
+            String value = redisTemplate.opsForValue().get(cacheKey(id));
+
+            if (value != null) {
+                cached = Cached.parse(value);
+                localCache.asMap().putIfAbsent(id, cached);
+            }
+        }
+
+        return Optional.ofNullable(cached).map(Cached::quantity);
+    }
+
+    /**
+     * 구매 가능 여부를 캐시 기준으로 대략 판단 (캐시에 없을 때만 DB 조회)
+     */
+    public boolean isAvailable(Long id, Long quantity) {
+        return getQuantity(id) >= quantity;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true) // 트랜잭션이 있으면 commit 이후, 없으면 바로 반영
+    public void on(StockChangedEvent event) {
+        if (event.quantity() == null || event.version() == null) {
+            evict(event.stockId());
+        } else {
+            putIfNewer(event.stockId(), new Cached(event.quantity(), event.version()));
+        }
+    }
+
+    private Long load(Long id) { // 수량을 들고 있는 곳(Redis counter -> journal 잔량 -> DB) 순서로 확인
+        Long counted = redisStockRepository.getQuantity(id);
+        if (counted != null) {
+            return counted;
+        }
+
+        if (journalStockService.isTracking(id)) {
+            return journalStockService.getQuantity(id);
+        }
+
+        return Optional.ofNullable(stockRepository.findAvailableQuantity(id)).orElseThrow(); // shard로 나누어진 Stock은 shard 합계
+    }
+
+    private void putIfNewer(Long id, Cached cached) {
+        localCache.asMap().merge(id, cached, (current, next) -> next.isNewerThan(current) ? next : current);
+
+        if (redisEnabled) {
+            redisTemplate.execute(PUT_IF_NEWER_SCRIPT, List.of(cacheKey(id)),
+                    cached.quantity().toString(), cached.version().toString(), String.valueOf(redisTtl.toMillis()));
+        }
+    }
+
+    private void putIfAbsent(Long id, Long quantity) {
+        Cached cached = new Cached(quantity, null);
+        localCache.asMap().putIfAbsent(id, cached);
+
+        if (redisEnabled) {
+            redisTemplate.opsForValue().setIfAbsent(cacheKey(id), cached.format(), redisTtl);
+        }
+    }
+
+    private void evict(Long id) {
+        localCache.invalidate(id);
+
+        if (redisEnabled) {
+            redisTemplate.delete(cacheKey(id));
+        }
+    }
+
+    private String cacheKey(Long id) {
+        return "stock:cache:" + id;
+    }
+
+    /**
+     * @param version 값을 읽은 Stock row의 version (read-through로 읽어 모르면 null, 어떤 이벤트로든 덮어쓸 수 있다)
+     */
+    private record Cached(Long quantity, Long version) {
+
+        boolean isNewerThan(Cached other) {
+            return other.version == null || version > other.version;
+        }
+
+        String format() {
+            return quantity + ":" + (version == null ? "" : version);
+        }
+
+        static Cached parse(String value) {
+            String[] parts = value.split(":", -1);
+
+            return new Cached(Long.valueOf(parts[0]), parts.length > 1 && !parts[1].isEmpty() ? Long.valueOf(parts[1]) : null);
+        }
+
+    }
+
+}
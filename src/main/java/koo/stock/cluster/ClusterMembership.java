@@ -0,0 +1,101 @@
+package koo.stock.cluster;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stock id의 소유 서버를 정하는 ring을 관리
+ * static: stock.cluster.members에 적은 서버 목록을 그대로 사용
+ * redis: 각 서버가 주기적으로 Redis sorted set에 heartbeat를 남기고, ttl 안에 heartbeat가 있는 서버들로 ring을 다시 만든다.
+ */
+@Component
+public class ClusterMembership {
+
+    private static final Logger log = LoggerFactory.getLogger(ClusterMembership.class);
+    private static final String MEMBERS_KEY = "cluster:members"; // member -> 마지막 heartbeat 시각(ms)
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final String self;
+    private final boolean redisMembership;
+    private final long ttlMillis;
+    private final int virtualNodes;
+    private volatile HashRing ring;
+
+    public ClusterMembership(RedisTemplate<String, String> redisTemplate,
+                             @Value("${stock.cluster.self:http://localhost:${server.port:8080}}") String self,
+                             @Value("${stock.cluster.members:}") List<String> staticMembers,
+                             @Value("${stock.cluster.membership:static}") String membership,
+                             @Value("${stock.cluster.ttl-millis:5000}") long ttlMillis,
+                             @Value("${stock.cluster.virtual-nodes:128}") int virtualNodes) {
+        this.redisTemplate = redisTemplate;
+        this.self = self;
+        this.redisMembership = "redis".equals(membership);
+        this.ttlMillis = ttlMillis;
+        this.virtualNodes = virtualNodes;
+        this.ring = new HashRing(withSelf(staticMembers), virtualNodes);
+    }
+
+    public String owner(Long id) {
+        return ring.owner(id);
+    }
+
+    public boolean isOwner(Long id) {
+        return self.equals(owner(id));
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    @Scheduled(fixedDelayString = "${stock.cluster.heartbeat-millis:1000}")
+    public void heartbeat() {
+        if (!redisMembership) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        redisTemplate.opsForZSet().add(MEMBERS_KEY, self, now);
+        redisTemplate.opsForZSet().removeRangeByScore(MEMBERS_KEY, 0, now - ttlMillis); // heartbeat가 끊긴 서버 제거
+
+        Set<String> members = redisTemplate.opsForZSet().range(MEMBERS_KEY, 0, -1);
+        rebuild(members == null ? Set.of() : members);
+    }
+
+    @PreDestroy
+    public void leave() { // 종료하는 서버의 몫을 ttl을 기다리지 않고 바로 다른 서버로 넘긴다.
+        if (redisMembership) {
+            redisTemplate.opsForZSet().remove(MEMBERS_KEY, self);
+        }
+    }
+
+    private void rebuild(Set<String> members) {
+        Set<String> current = withSelf(members);
+
+        if (!current.equals(ring.getMembers())) {
+            ring = new HashRing(current, virtualNodes);
+            log.info("Stock 소유 서버 재분배 members={}", current);
+        }
+    }
+
+    private Set<String> withSelf(Iterable<String> members) {
+        Set<String> result = new HashSet<>();
+        members.forEach(member -> {
+            if (!member.isBlank()) {
+                result.add(member.trim());
+            }
+        });
+        result.add(self);
+
+        return result;
+    }
+
+}
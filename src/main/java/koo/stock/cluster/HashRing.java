@@ -0,0 +1,59 @@
+package koo.stock.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Consistent hash ring (불변)
+ * 서버 하나당 virtual node를 여러 개 두어 id가 고르게 나뉘도록 하고, 서버가 추가/제거되면 그 서버 몫의 id만 옮겨간다.
+ */
+public final class HashRing {
+
+    private final Set<String> members;
+    private final NavigableMap<Long, String> ring = new TreeMap<>();
+
+    public HashRing(Collection<String> members, int virtualNodes) {
+        if (members.isEmpty()) {
+            throw new IllegalArgumentException("ring에는 하나 이상의 서버가 필요합니다.");
+        }
+
+        this.members = Set.copyOf(new TreeSet<>(members));
+        for (String member : this.members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    public String owner(Long id) {
+        Map.Entry<Long, String> entry = ring.ceilingEntry(hash(id.toString()));
+
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue(); // 끝을 넘어가면 처음으로 돌아간다.
+    }
+
+    public Set<String> getMembers() {
+        return members;
+    }
+
+    private static long hash(String value) { // MD5 앞 8byte (String.hashCode보다 고르게 분포)
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(value.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < 8; i++) {
+                hash = (hash << 8) | (digest[i] & 0xff);
+            }
+
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+}
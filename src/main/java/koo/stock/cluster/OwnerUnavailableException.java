@@ -0,0 +1,9 @@
+package koo.stock.cluster;
+
+public class OwnerUnavailableException extends RuntimeException { // 소유 서버에 요청을 넘기지 못했거나 응답을 받지 못한 경우 (감소 여부를 모르므로 나중에 다시 시도)
+
+    public OwnerUnavailableException(String owner, Long id, Throwable cause) {
+        super("소유 서버 응답 없음 owner=" + owner + ", id=" + id, cause);
+    }
+
+}
@@ -0,0 +1,45 @@
+package koo.stock.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * Named Lock 전용 커넥션 풀을 분리
+ * DataSource를 직접 등록하면 기본 DataSource 자동 설정이 빠지므로 JPA가 사용할 기본 풀도 함께 등록한다.
+ * R2DBC ConnectionFactory가 있으면 JDBC DataSource 자동 설정(DataSourceProperties 등록 포함)이 동작하지 않으므로 spring.datasource 설정도 직접 바인딩한다.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties dataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+    }
+
+    @Bean
+    @ConfigurationProperties("stock.named-lock.datasource.hikari")
+    public HikariDataSource namedLockDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("named-lock-pool");
+
+        return dataSource;
+    }
+
+}
@@ -0,0 +1,27 @@
+package koo.stock.config;
+
+import koo.stock.lock.RedisLockAcquirer;
+import koo.stock.repository.RedisLockRepository;
+import koo.stock.soldout.SoldOutRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class RedisConfig {
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                       RedisLockAcquirer redisLockAcquirer,
+                                                                       SoldOutRegistry soldOutRegistry) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(redisLockAcquirer, new ChannelTopic(RedisLockRepository.RELEASE_CHANNEL));
+        container.addMessageListener(soldOutRegistry, new ChannelTopic(SoldOutRegistry.CHANNEL));
+
+        return container;
+    }
+
+}
@@ -0,0 +1,46 @@
+package koo.stock.controller;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.StockBusyException;
+import koo.stock.intake.StockIntake;
+import koo.stock.intake.Ticket;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/intake")
+public class IntakeController {
+
+    private final StockIntake stockIntake;
+
+    public IntakeController(StockIntake stockIntake) {
+        this.stockIntake = stockIntake;
+    }
+
+    @PostMapping("/stocks/{id}/decrease")
+    public ResponseEntity<Ticket> submit(@PathVariable Long id, @RequestParam Long quantity) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(stockIntake.submit(id, quantity));
+    }
+
+    @GetMapping("/tickets/{ticketId}")
+    public ResponseEntity<Ticket> findTicket(@PathVariable String ticketId) {
+        return ResponseEntity.of(stockIntake.findTicket(ticketId));
+    }
+
+    @ExceptionHandler(OutOfStockException.class)
+    public ResponseEntity<Void> soldOut() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(StockBusyException.class)
+    public ResponseEntity<Void> busy() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> invalidQuantity(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+}
@@ -0,0 +1,55 @@
+package koo.stock.controller;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.reservation.Reservation;
+import koo.stock.reservation.StockReservationService;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+public class ReservationController {
+
+    private final StockReservationService stockReservationService;
+
+    public ReservationController(StockReservationService stockReservationService) {
+        this.stockReservationService = stockReservationService;
+    }
+
+    @PostMapping("/stocks/{stockId}/reservations")
+    public String hold(@PathVariable Long stockId, @RequestParam Long quantity) {
+        Reservation reservation = stockReservationService.hold(stockId, quantity);
+
+        return reservation.getId();
+    }
+
+    @PostMapping("/reservations/{reservationId}/confirm")
+    public ResponseEntity<Void> confirm(@PathVariable String reservationId) {
+        stockReservationService.confirm(reservationId);
+
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/reservations/{reservationId}")
+    public ResponseEntity<Void> release(@PathVariable String reservationId) {
+        stockReservationService.release(reservationId);
+
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler(OutOfStockException.class)
+    public ResponseEntity<Void> outOfStock() { // 예약 가능한 재고가 부족한 경우
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(IllegalStateException.class)
+    public ResponseEntity<Void> notFound() { // 만료되었거나 이미 확정/해제된 예약
+        return ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> invalidQuantity(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+}
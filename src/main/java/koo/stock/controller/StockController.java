@@ -0,0 +1,163 @@
+package koo.stock.controller;
+
+import koo.stock.cache.StockQuantityCache;
+import koo.stock.cluster.OwnerUnavailableException;
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.StockBusyException;
+import koo.stock.facade.LettuceLockStockFacade;
+import koo.stock.facade.NamedLockStockFacade;
+import koo.stock.facade.OptimisticLockStockFacade;
+import koo.stock.facade.OwnershipStockFacade;
+import koo.stock.facade.RedissonLockStockFacade;
+import koo.stock.lock.LockAcquisitionTimeoutException;
+import koo.stock.service.PessimisticLockStockService;
+import koo.stock.service.RestockService;
+import koo.stock.service.StockService;
+import koo.stock.soldout.SoldOutRegistry;
+import koo.stock.strategy.StockStrategyRouter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/stocks")
+public class StockController { // spring.threads.virtual.enabled=true 이면 요청마다 virtual thread에서 facade가 호출된다.
+
+    private final StockService stockService;
+    private final PessimisticLockStockService pessimisticLockStockService;
+    private final OptimisticLockStockFacade optimisticLockStockFacade;
+    private final NamedLockStockFacade namedLockStockFacade;
+    private final LettuceLockStockFacade lettuceLockStockFacade;
+    private final RedissonLockStockFacade redissonLockStockFacade;
+    private final OwnershipStockFacade ownershipStockFacade;
+    private final RestockService restockService;
+    private final StockStrategyRouter stockStrategyRouter;
+    private final StockQuantityCache stockQuantityCache;
+    private final SoldOutRegistry soldOutRegistry;
+    private final Semaphore decreasePermits; // virtual thread 사용 시 동시에 감소를 수행하는 요청 수 (사용하지 않으면 null)
+    private final long permitWaitMillis;
+
+    public StockController(StockService stockService,
+                           PessimisticLockStockService pessimisticLockStockService,
+                           OptimisticLockStockFacade optimisticLockStockFacade,
+                           NamedLockStockFacade namedLockStockFacade,
+                           LettuceLockStockFacade lettuceLockStockFacade,
+                           RedissonLockStockFacade redissonLockStockFacade,
+                           OwnershipStockFacade ownershipStockFacade,
+                           RestockService restockService,
+                           StockStrategyRouter stockStrategyRouter,
+                           StockQuantityCache stockQuantityCache,
+                           SoldOutRegistry soldOutRegistry,
+                           @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                           @Value("${stock.decrease.max-concurrency:${spring.datasource.hikari.maximum-pool-size:10}}") int maxConcurrency,
+                           @Value("${stock.decrease.permit-wait-millis:1000}") long permitWaitMillis) {
+        this.stockService = stockService;
+        this.pessimisticLockStockService = pessimisticLockStockService;
+        this.optimisticLockStockFacade = optimisticLockStockFacade;
+        this.namedLockStockFacade = namedLockStockFacade;
+        this.lettuceLockStockFacade = lettuceLockStockFacade;
+        this.redissonLockStockFacade = redissonLockStockFacade;
+        this.ownershipStockFacade = ownershipStockFacade;
+        this.restockService = restockService;
+        this.stockStrategyRouter = stockStrategyRouter;
+        this.stockQuantityCache = stockQuantityCache;
+        this.soldOutRegistry = soldOutRegistry;
+        // virtual thread는 Tomcat 스레드 수로 동시 요청이 제한되지 않으므로, 커넥션 풀 앞에서 요청 수를 직접 제한한다.
+        this.decreasePermits = virtualThreads ? new Semaphore(maxConcurrency, true) : null;
+        this.permitWaitMillis = permitWaitMillis;
+    }
+
+    @GetMapping("/{id}/quantity")
+    public Long getQuantity(@PathVariable Long id) {
+        return stockQuantityCache.getQuantity(id);
+    }
+
+    @GetMapping("/{id}/availability")
+    public boolean isAvailable(@PathVariable Long id, @RequestParam(defaultValue = "1") Long quantity) {
+        return stockQuantityCache.isAvailable(id, quantity);
+    }
+
+    @PostMapping("/{id}/decrease")
+    public ResponseEntity<Void> decrease(@PathVariable Long id,
+                                         @RequestParam Long quantity,
+                                         @RequestParam(defaultValue = "pessimistic") String strategy,
+                                         @RequestHeader(name = OwnershipStockFacade.FORWARDED_HEADER, required = false) String forwardedBy) throws InterruptedException {
+        if (quantity <= 0) { // 음수 감소는 Stock.decrease와 Redis script에서 증가가 되므로 lock을 잡기 전에 거절
+            return ResponseEntity.badRequest().build();
+        }
+
+        soldOutRegistry.check(id); // 품절이면 어떤 lock도 잡지 않고 바로 409
+
+        if (decreasePermits == null) {
+            return decreaseWith(strategy, id, quantity, forwardedBy);
+        }
+
+        if (!decreasePermits.tryAcquire(permitWaitMillis, TimeUnit.MILLISECONDS)) { // 커넥션 풀과 lock 대기열이 한없이 길어지지 않도록 429
+            throw new StockBusyException(id);
+        }
+
+        try {
+            return decreaseWith(strategy, id, quantity, forwardedBy);
+        } finally {
+            decreasePermits.release();
+        }
+    }
+
+    private ResponseEntity<Void> decreaseWith(String strategy, Long id, Long quantity, String forwardedBy) throws InterruptedException {
+        switch (strategy) {
+            case "synchronized" -> stockService.decrease(id, quantity);
+            case "pessimistic" -> pessimisticLockStockService.decrease(id, quantity);
+            case "optimistic" -> optimisticLockStockFacade.decrease(id, quantity);
+            case "named" -> namedLockStockFacade.decrease(id, quantity);
+            case "lettuce" -> lettuceLockStockFacade.decrease(id, quantity);
+            case "redisson" -> redissonLockStockFacade.decrease(id, quantity);
+            case "owned" -> ownershipStockFacade.decrease(id, quantity, forwardedBy); // header 값은 facade가 검증한다.
+            case "auto" -> stockStrategyRouter.decrease(id, quantity);
+            default -> {
+                return ResponseEntity.badRequest().build();
+            }
+        }
+
+        return ResponseEntity.ok().build();
+    }
+
+    @PostMapping("/{id}/increase")
+    public Long increase(@PathVariable Long id, @RequestParam Long quantity) {
+        return restockService.increase(id, quantity);
+    }
+
+    @PutMapping("/{id}/quantity")
+    public Long setQuantity(@PathVariable Long id, @RequestParam Long quantity) throws InterruptedException {
+        return restockService.set(id, quantity);
+    }
+
+    @ExceptionHandler(OutOfStockException.class)
+    public ResponseEntity<Void> outOfStock() { // 다른 서버가 넘겨준 요청의 재고 부족을 구분할 수 있도록 409로 응답
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(StockBusyException.class)
+    public ResponseEntity<Void> busy() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+    }
+
+    @ExceptionHandler(LockAcquisitionTimeoutException.class)
+    public ResponseEntity<Void> lockTimeout() { // 감소가 일어나지 않았으므로 성공(200) 대신 나중에 다시 시도하도록 503
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    @ExceptionHandler(OwnerUnavailableException.class)
+    public ResponseEntity<Void> ownerUnavailable() { // 소유 서버가 감소했는지 알 수 없으므로 500 대신 503 (다시 시도하기 전에 수량을 조회해 확인)
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<String> invalidQuantity(IllegalArgumentException e) { // 잘못된 수량은 품절(409)과 구분해 400으로 응답
+        return ResponseEntity.badRequest().body(e.getMessage());
+    }
+
+}
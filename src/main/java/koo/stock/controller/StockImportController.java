@@ -0,0 +1,25 @@
+package koo.stock.controller;
+
+import koo.stock.importer.ImportResult;
+import koo.stock.importer.StockCsvImporter;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+public class StockImportController {
+
+    private final StockCsvImporter stockCsvImporter;
+
+    public StockImportController(StockCsvImporter stockCsvImporter) {
+        this.stockCsvImporter = stockCsvImporter;
+    }
+
+    @PostMapping(value = "/stocks/import", consumes = "text/csv")
+    public ImportResult importCsv(InputStream body) throws IOException, InterruptedException { // 요청 본문을 통째로 읽지 않고 스트림으로 넘긴다.
+        return stockCsvImporter.importCsv(body);
+    }
+
+}
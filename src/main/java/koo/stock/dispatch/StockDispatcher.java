@@ -0,0 +1,127 @@
+package koo.stock.dispatch;
+
+import jakarta.annotation.PreDestroy;
+import koo.stock.domain.OutOfStockException;
+import koo.stock.service.BatchStockService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * id별 단일 writer
+ * id를 partition으로 나누고 partition마다 lock-free 큐 하나와 그 큐를 비우는 worker 스레드 하나를 둔다.
+ * 같은 id의 요청은 항상 같은 worker가 순서대로 처리하므로 서버 안에서는 lock 경합이 없고, 서로 다른 id는 partition 수만큼 병렬로 처리된다.
+ * worker는 큐에 쌓인 요청을 id별로 묶어 BatchStockService로 한번에 반영한다. (서버 간 정합성은 그 안의 row lock이 보장)
+ */
+@Component
+public class StockDispatcher {
+
+    private final BatchStockService batchStockService;
+    private final int maxBatchSize;
+    private final Partition[] partitions;
+
+    public StockDispatcher(BatchStockService batchStockService,
+                           @Value("${stock.dispatcher.partitions:0}") int partitions,
+                           @Value("${stock.dispatcher.max-batch-size:256}") int maxBatchSize) {
+        this.batchStockService = batchStockService;
+        this.maxBatchSize = maxBatchSize;
+
+        int count = partitions > 0 ? partitions : Runtime.getRuntime().availableProcessors(); // 기본값은 코어 수
+        this.partitions = new Partition[count];
+        for (int i = 0; i < count; i++) {
+            this.partitions[i] = new Partition(i);
+        }
+    }
+
+    public CompletableFuture<Void> dispatch(Long id, Long quantity) {
+        Command command = new Command(id, quantity, new CompletableFuture<>());
+        Partition partition = partitions[Math.floorMod(id.hashCode(), partitions.length)];
+
+        partition.queue.offer(command);
+        LockSupport.unpark(partition.worker); // park 전에 unpark되어도 permit이 남아 있어 깨우기가 유실되지 않는다.
+
+        return command.future;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Partition partition : partitions) {
+            partition.running = false;
+            LockSupport.unpark(partition.worker);
+        }
+    }
+
+    private void apply(List<Command> batch) {
+        Map<Long, List<Command>> commandsById = new LinkedHashMap<>(); // 같은 id의 요청은 들어온 순서를 유지
+        batch.forEach(command -> commandsById.computeIfAbsent(command.id(), k -> new ArrayList<>()).add(command));
+
+        commandsById.forEach((id, commands) -> {
+            try {
+                List<Boolean> results = batchStockService.decreaseBatch(id, commands.stream().map(Command::quantity).toList());
+
+                for (int i = 0; i < commands.size(); i++) {
+                    if (results.get(i)) {
+                        commands.get(i).future.complete(null);
+                    } else {
+                        commands.get(i).future.completeExceptionally(new OutOfStockException());
+                    }
+                }
+            } catch (RuntimeException e) { // DB 오류 등으로 해당 id의 batch 전체가 실패한 경우
+                commands.forEach(command -> command.future.completeExceptionally(e));
+            }
+        });
+    }
+
+    private record Command(Long id, Long quantity, CompletableFuture<Void> future) {
+    }
+
+    private class Partition implements Runnable {
+
+        private final Queue<Command> queue = new ConcurrentLinkedQueue<>(); // 여러 요청 스레드가 넣고 worker 하나만 꺼낸다.
+        private final Thread worker;
+        private volatile boolean running = true;
+
+        private Partition(int index) {
+            this.worker = Thread.ofPlatform()
+                    .name("stock-dispatcher-" + index)
+                    .daemon(true)
+                    .start(this);
+        }
+
+        @Override
+        public void run() {
+            List<Command> batch = new ArrayList<>(maxBatchSize);
+
+            while (running) {
+                Command command;
+                while (batch.size() < maxBatchSize && (command = queue.poll()) != null) {
+                    batch.add(command);
+                }
+
+                if (batch.isEmpty()) {
+                    LockSupport.park(this);
+                    continue;
+                }
+
+                apply(batch);
+                batch.clear();
+            }
+
+            Command command;
+            while ((command = queue.poll()) != null) { // 종료 시 남은 요청은 실패로 완료
+                command.future.completeExceptionally(new CancellationException("dispatcher가 종료되었습니다."));
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,9 @@
+package koo.stock.domain;
+
+public class OutOfStockException extends RuntimeException { // 재고 부족으로 인한 실패를 lock 실패, DB 오류 등과 구분하기 위한 예외
+
+    public OutOfStockException() {
+        super("재고는 0개 미만일 수 없습니다.");
+    }
+
+}
@@ -1,6 +1,11 @@
 package koo.stock.domain;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 @Entity
 public class Stock {
@@ -13,9 +18,14 @@ public class Stock {
 
     private Long quantity;
 
+    @ColumnDefault("0") // JPA를 거치지 않는 insert(CSV 적재, warm-up)도 0으로 시작
+    private Long reserved = 0L; // 예약(StockReservationService)으로 잡혀 있어 확정 전까지 팔 수 없는 수량
+
     @Version
     private Long version; // Optimistic Lock을 위한 version 필드
 
+    private Long fencingToken; // 마지막으로 갱신한 Redis lock 소유자의 fencing token
+
     public Stock() {
 
     }
@@ -25,16 +35,67 @@ public class Stock {
         this.quantity = quantity;
     }
 
+    public Long getId() {
+        return id;
+    }
+
     public Long getQuantity() {
         return quantity;
     }
 
+    public Long getReserved() {
+        return reserved;
+    }
+
+    public Long getAvailableQuantity() { // 판매 가능한 수량 (감소는 이 수량 안에서만 가능하다)
+        return quantity - reserved;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public Long getFencingToken() {
+        return fencingToken;
+    }
+
     public void decrease(Long quantity) {
-        if (this.quantity - quantity < 0) {
-            throw new RuntimeException("재고는 0개 미만일 수 없습니다.");
+        if (quantity <= 0) { // 음수를 빼면 재고가 늘어나므로 입고와 같이 거절
+            throw new IllegalArgumentException("감소 수량은 0보다 커야 합니다.");
+        }
+
+        if (getAvailableQuantity() - quantity < 0) { // 예약된 수량은 예약을 확정할 때만 줄어든다.
+            throw new OutOfStockException();
         }
 
         this.quantity -= quantity;
     }
 
+    public void increase(Long quantity) { // 입고
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("입고 수량은 0보다 커야 합니다.");
+        }
+
+        this.quantity += quantity;
+    }
+
+    public void setQuantity(Long quantity) { // 실사 등으로 수량을 직접 지정
+        if (quantity < 0) {
+            throw new IllegalArgumentException("재고 수량은 0보다 작을 수 없습니다.");
+        }
+
+        this.quantity = quantity;
+    }
+
+    // 여러 Stock을 한번에 감소 (하나라도 재고가 부족하거나 존재하지 않으면 예외가 발생해 전체가 반영되지 않는다)
+    public static void decreaseAll(List<Stock> stocks, Map<Long, Long> quantities) {
+        if (stocks.size() != quantities.size()) {
+            throw new NoSuchElementException("존재하지 않는 Stock이 포함되어 있습니다. ids=" + quantities.keySet());
+        }
+
+        for (Stock stock : stocks) {
+            stock.decrease(quantities.get(stock.getId()));
+        }
+    }
+
 }
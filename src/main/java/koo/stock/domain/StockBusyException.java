@@ -0,0 +1,9 @@
+package koo.stock.domain;
+
+public class StockBusyException extends RuntimeException { // 처리 대기중인 요청이 한도를 넘어 받지 않은 경우 (재고 부족과 달리 나중에 다시 시도할 수 있다)
+
+    public StockBusyException(Long id) {
+        super("처리 대기중인 요청이 너무 많습니다. id=" + id);
+    }
+
+}
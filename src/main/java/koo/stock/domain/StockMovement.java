@@ -0,0 +1,61 @@
+package koo.stock.domain;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(indexes = @Index(columnList = "stockId, snapshotId"))
+public class StockMovement { // 재고 변경 이력 (insert만 하고 수정하지 않는다, snapshot 반영 여부 표시는 예외)
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long stockId;
+
+    private Long quantity; // 변경량 (감소는 음수)
+
+    private LocalDateTime createdAt;
+
+    private String snapshotId; // Stock 수량에 반영한 snapshot (null이면 아직 반영되지 않음)
+
+    public StockMovement() {
+
+    }
+
+    public StockMovement(Long stockId, Long quantity) {
+        this.stockId = stockId;
+        this.quantity = quantity;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    public static StockMovement decrease(Long stockId, Long quantity) {
+        return new StockMovement(stockId, -quantity);
+    }
+
+    public static StockMovement increase(Long stockId, Long quantity) {
+        return new StockMovement(stockId, quantity);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getStockId() {
+        return stockId;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public String getSnapshotId() {
+        return snapshotId;
+    }
+
+}
@@ -0,0 +1,53 @@
+package koo.stock.domain;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(columnNames = {"stockId", "shardNo"}))
+public class StockShard { // 하나의 Stock 수량을 여러 row로 나누어 한 row에 쓰기가 몰리지 않도록 한다.
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long stockId;
+
+    private Integer shardNo;
+
+    private Long quantity;
+
+    public StockShard() {
+
+    }
+
+    public StockShard(Long stockId, Integer shardNo, Long quantity) {
+        this.stockId = stockId;
+        this.shardNo = shardNo;
+        this.quantity = quantity;
+    }
+
+    public Long getStockId() {
+        return stockId;
+    }
+
+    public Integer getShardNo() {
+        return shardNo;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public void decrease(Long quantity) {
+        if (this.quantity - quantity < 0) {
+            throw new OutOfStockException();
+        }
+
+        this.quantity -= quantity;
+    }
+
+    public void increase(Long quantity) {
+        this.quantity += quantity;
+    }
+
+}
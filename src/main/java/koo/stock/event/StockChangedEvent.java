@@ -0,0 +1,27 @@
+package koo.stock.event;
+
+import koo.stock.domain.Stock;
+
+/**
+ * 재고 수량이 바뀌었을 때 발행하는 이벤트
+ * commit 이후 처리되는 이벤트는 스레드와 서버마다 도착 순서가 보장되지 않으므로, 순서가 중요한 곳은 version으로 오래된 이벤트를 거른다.
+ *
+ * @param stockId  변경된 Stock id
+ * @param quantity 변경 후 판매 가능한 수량 (조건부 update처럼 변경 후 수량을 알 수 없으면 null)
+ * @param version  변경 후 Stock row의 version (Redis counter, journal처럼 row를 거치지 않으면 null)
+ */
+public record StockChangedEvent(Long stockId, Long quantity, Long version) {
+
+    public StockChangedEvent(Long stockId, Long quantity) {
+        this(stockId, quantity, null);
+    }
+
+    public static StockChangedEvent of(Stock stock) {
+        return new StockChangedEvent(stock.getId(), stock.getAvailableQuantity(), stock.getVersion());
+    }
+
+    public static StockChangedEvent unknown(Long stockId) {
+        return new StockChangedEvent(stockId, null);
+    }
+
+}
@@ -0,0 +1,118 @@
+package koo.stock.facade;
+
+import jakarta.annotation.PreDestroy;
+import koo.stock.domain.OutOfStockException;
+import koo.stock.service.BatchStockService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+public class CoalescingStockFacade { // 같은 id로 동시에 들어온 요청들을 모아 한번의 DB update로 처리 (group commit)
+
+    private final BatchStockService batchStockService;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    public CoalescingStockFacade(BatchStockService batchStockService,
+                                 @Value("${stock.coalescing.window-millis:5}") long windowMillis,
+                                 @Value("${stock.coalescing.max-batch-size:100}") int maxBatchSize,
+                                 @Value("${stock.coalescing.flush-threads:4}") int flushThreads) {
+        this.batchStockService = batchStockService;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.scheduler = Executors.newScheduledThreadPool(flushThreads);
+    }
+
+    public void decrease(Long id, Long quantity) {
+        try {
+            decreaseAsync(id, quantity).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Void> decreaseAsync(Long id, Long quantity) {
+        Request request = new Request(quantity, new CompletableFuture<>());
+        Lane lane = lanes.computeIfAbsent(id, Lane::new);
+
+        lane.queue.add(request);
+
+        if (lane.scheduled.compareAndSet(false, true)) { // 첫 요청이 들어오면 window 이후 flush 예약
+            scheduler.schedule(() -> flush(lane), windowMillis, TimeUnit.MILLISECONDS);
+        }
+
+        return request.future;
+    }
+
+    private void flush(Lane lane) {
+        List<Request> batch = new ArrayList<>();
+        Request request;
+        while (batch.size() < maxBatchSize && (request = lane.queue.poll()) != null) {
+            batch.add(request);
+        }
+
+        try {
+            apply(lane.id, batch);
+        } finally {
+            lane.scheduled.set(false);
+
+            // 최대 크기를 넘겨 남은 요청이 있으면 window를 기다리지 않고 바로 다음 batch를 처리
+            if (!lane.queue.isEmpty() && lane.scheduled.compareAndSet(false, true)) {
+                scheduler.execute(() -> flush(lane));
+            }
+        }
+    }
+
+    private void apply(Long id, List<Request> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Boolean> results = batchStockService.decreaseBatch(id, batch.stream().map(Request::quantity).toList());
+
+            for (int i = 0; i < batch.size(); i++) {
+                if (results.get(i)) {
+                    batch.get(i).future.complete(null);
+                } else {
+                    batch.get(i).future.completeExceptionally(new OutOfStockException());
+                }
+            }
+        } catch (RuntimeException e) { // DB 오류 등으로 batch 전체가 실패한 경우
+            batch.forEach(r -> r.future.completeExceptionally(e));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+
+    private record Request(Long quantity, CompletableFuture<Void> future) {
+    }
+
+    private static class Lane {
+
+        private final Long id;
+        private final Queue<Request> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private Lane(Long id) {
+            this.id = id;
+        }
+
+    }
+
+}
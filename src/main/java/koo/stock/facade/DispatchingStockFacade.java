@@ -0,0 +1,33 @@
+package koo.stock.facade;
+
+import koo.stock.dispatch.StockDispatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+@Component
+public class DispatchingStockFacade { // id별 단일 writer(StockDispatcher)에 감소를 맡기고 결과를 기다린다.
+
+    private final StockDispatcher stockDispatcher;
+
+    public DispatchingStockFacade(StockDispatcher stockDispatcher) {
+        this.stockDispatcher = stockDispatcher;
+    }
+
+    public void decrease(Long id, Long quantity) {
+        try {
+            decreaseAsync(id, quantity).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    public CompletableFuture<Void> decreaseAsync(Long id, Long quantity) {
+        return stockDispatcher.dispatch(id, quantity);
+    }
+
+}
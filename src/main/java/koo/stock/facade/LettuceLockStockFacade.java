@@ -1,31 +1,143 @@
 package koo.stock.facade;
 
-import koo.stock.repository.RedisLockRepository;
-import koo.stock.service.StockService;
+import koo.stock.lock.LocalLockRegistry;
+import koo.stock.lock.LockAcquisitionTimeoutException;
+import koo.stock.lock.RedisLock;
+import koo.stock.lock.RedisLockAcquirer;
+import koo.stock.lock.RedisLockWatchdog;
+import koo.stock.metrics.StockMetrics;
+import koo.stock.service.FencedStockService;
+import koo.stock.strategy.StockDecreaseStrategy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
 @Component
-public class LettuceLockStockFacade {
+public class LettuceLockStockFacade implements StockDecreaseStrategy {
+
+    private static final String STRATEGY = "lettuce";
 
-    private final RedisLockRepository redisLockRepository;
-    private final StockService stockService;
+    private final RedisLockAcquirer redisLockAcquirer;
+    private final RedisLockWatchdog redisLockWatchdog;
+    private final FencedStockService fencedStockService;
+    private final StockMetrics stockMetrics;
+    private final long lockWaitMillis;
+    private final LocalLockRegistry<RedisLock> localLocks;
 
-    public LettuceLockStockFacade(RedisLockRepository redisLockRepository, StockService stockService) {
-        this.redisLockRepository = redisLockRepository;
-        this.stockService = stockService;
+    public LettuceLockStockFacade(RedisLockAcquirer redisLockAcquirer, RedisLockWatchdog redisLockWatchdog,
+                                  FencedStockService fencedStockService, StockMetrics stockMetrics,
+                                  @Value("${stock.lettuce.lock-wait-millis:30000}") long lockWaitMillis,
+                                  @Value("${stock.lettuce.max-handoffs:32}") int maxHandoffs) {
+        this.redisLockAcquirer = redisLockAcquirer;
+        this.redisLockWatchdog = redisLockWatchdog;
+        this.fencedStockService = fencedStockService;
+        this.stockMetrics = stockMetrics;
+        this.lockWaitMillis = lockWaitMillis;
+        this.localLocks = new LocalLockRegistry<>(maxHandoffs, redisLockWatchdog::isWatched, redisLockAcquirer::release);
     }
 
+    @Override
+    public String getName() {
+        return STRATEGY;
+    }
+
+    @Override
+    public boolean isMixable() { // 수량과 fencing token을 조건으로 한 update 한번으로 갱신
+        return true;
+    }
+
+    @Override
     public void decrease(Long id, Long quantity) throws InterruptedException {
-        while (!redisLockRepository.lock(id)) {
-            Thread.sleep(100); // lock이 걸려있을 경우는 100 milis의 텀을 발생시켜 redis의 부하를 줄인다. (Lettuce는 Spin Lock 방식이므로 부하를 줄여야한다.)
+        stockMetrics.track(STRATEGY, id, () -> {
+            // 고정된 100 millis sleep으로 spin 하는 대신 lock 해제 알림(pub-sub)과 jitter backoff로 깨어나는 CompletableFuture를 기다린다.
+            // 서버 안에서 먼저 줄을 서고, 앞 스레드가 넘겨준 lock이 없을 때만 Redis lock을 획득한다.
+            // 서버 안에서 기다린 시간도 lockWaitMillis에 포함하고, Redis lock은 남은 시간만큼만 기다린다.
+            long waitStart = System.nanoTime();
+            RedisLock lock = lockLocally(id);
+            long holdStart = 0;
+            try {
+                if (lock == null) {
+                    lock = acquire(id, lockWaitMillis - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart));
+                }
+                stockMetrics.recordLockWait(STRATEGY, id, waitStart);
+
+                // lock을 획득한 경우 (lease는 watchdog이 연장하고, 쓰기는 fencing token으로 한번 더 검증한다)
+                // 넘겨받은 lock은 같은 fencing token을 그대로 쓴다. (token 검사는 같거나 큰 값을 허용)
+                holdStart = System.nanoTime();
+                fencedStockService.decrease(id, quantity, lock.getFencingToken());
+                stockMetrics.recordTransaction(STRATEGY, id, holdStart);
+            } finally {
+                localLocks.unlock(id, lock);
+                if (holdStart > 0) {
+                    stockMetrics.recordLockHold(STRATEGY, id, holdStart);
+                }
+            }
+        });
+    }
+
+    public void decreaseAll(Map<Long, Long> quantities) throws InterruptedException {
+        stockMetrics.track(STRATEGY, null, () -> { // 여러 id에 걸친 요청은 key 태그 없이(other) 집계
+            List<RedisLock> locks = new ArrayList<>();
+            long holdStart = 0;
+
+            try {
+                long waitStart = System.nanoTime();
+                for (Long id : new TreeMap<>(quantities).keySet()) { // id 오름차순으로 lock을 잡아 데드락 방지
+                    locks.add(acquire(id, lockWaitMillis));
+                }
+                stockMetrics.recordLockWait(STRATEGY, null, waitStart);
+
+                Map<Long, Long> fencingTokens = locks.stream()
+                        .collect(Collectors.toMap(RedisLock::getKey, RedisLock::getFencingToken));
+                holdStart = System.nanoTime();
+                fencedStockService.decreaseAll(quantities, fencingTokens);
+                stockMetrics.recordTransaction(STRATEGY, null, holdStart);
+            } finally {
+                for (int i = locks.size() - 1; i >= 0; i--) {
+                    redisLockAcquirer.release(locks.get(i));
+                }
+                if (holdStart > 0) {
+                    stockMetrics.recordLockHold(STRATEGY, null, holdStart);
+                }
+            }
+        });
+    }
+
+    private RedisLock lockLocally(Long id) throws InterruptedException {
+        try {
+            return localLocks.lock(id, lockWaitMillis);
+        } catch (LockAcquisitionTimeoutException e) { // 앞 스레드들이 대기 시간을 다 쓴 경우
+            stockMetrics.incrementLockFailure(STRATEGY, id);
+            throw e;
         }
+    }
 
-        // lock이 걸려 있지 않은 경우
+    private RedisLock acquire(Long id, long waitMillis) throws InterruptedException {
+        CompletableFuture<RedisLock> future = redisLockAcquirer.acquire(id, Math.max(waitMillis, 0));
+        RedisLock lock;
         try {
-            stockService.decrease(id, quantity);
-        } finally {
-            redisLockRepository.unlock(id);
+            lock = future.get();
+        } catch (InterruptedException e) {
+            redisLockAcquirer.cancel(future); // 받지 않을 lock이 나중에 획득되어 남지 않도록 취소
+            throw e;
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+
+        if (lock == null) {
+            stockMetrics.incrementLockFailure(STRATEGY, id);
+            throw new LockAcquisitionTimeoutException(id, lockWaitMillis);
         }
+
+        return lock;
     }
 
 }
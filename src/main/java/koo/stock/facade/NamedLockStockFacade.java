@@ -1,30 +1,61 @@
 package koo.stock.facade;
 
-import koo.stock.repository.StockRepository;
+import koo.stock.metrics.StockMetrics;
+import koo.stock.repository.NamedLockRepository;
 import koo.stock.service.NamedLockStockService;
-import koo.stock.service.StockService;
+import koo.stock.strategy.StockDecreaseStrategy;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.TreeMap;
 
 @Component
-public class NamedLockStockFacade {
+public class NamedLockStockFacade implements StockDecreaseStrategy {
+
+    private static final String STRATEGY = "named";
 
-    private final StockRepository stockRepository;
+    private final NamedLockRepository namedLockRepository;
     private final NamedLockStockService namedLockStockService;
+    private final StockMetrics stockMetrics;
 
-    public NamedLockStockFacade(StockRepository stockRepository, NamedLockStockService namedLockStockService) {
-        this.stockRepository = stockRepository;
+    public NamedLockStockFacade(NamedLockRepository namedLockRepository, NamedLockStockService namedLockStockService, StockMetrics stockMetrics) {
+        this.namedLockRepository = namedLockRepository;
         this.namedLockStockService = namedLockStockService;
+        this.stockMetrics = stockMetrics;
+    }
+
+    @Override
+    public String getName() {
+        return STRATEGY;
     }
 
-    @Transactional
+    // lock은 named lock 전용 풀의 커넥션에서 잡으므로 여기서는 트랜잭션(커넥션)을 열지 않는다.
+    @Override
     public void decrease(Long id, Long quantity) {
-        try {
-            stockRepository.getLock(id.toString());
-            namedLockStockService.decrease(id, quantity);
-        } finally {
-            stockRepository.releaseLock(id.toString());
-        }
+        stockMetrics.track(STRATEGY, id, () -> {
+            long waitStart = System.nanoTime();
+            namedLockRepository.lock(id);
+            stockMetrics.recordLockWait(STRATEGY, id, waitStart);
+
+            long holdStart = System.nanoTime();
+            try {
+                namedLockStockService.decrease(id, quantity);
+                stockMetrics.recordTransaction(STRATEGY, id, holdStart);
+            } finally {
+                namedLockRepository.unlock(id);
+                stockMetrics.recordLockHold(STRATEGY, id, holdStart);
+            }
+        });
+    }
+
+    public void decreaseAll(Map<Long, Long> quantities) {
+        stockMetrics.track(STRATEGY, null, () -> { // 여러 id에 걸친 요청은 key 태그 없이(other) 집계
+            long start = System.nanoTime();
+            // id 오름차순으로 하나의 세션에서 lock을 잡아 데드락 방지
+            namedLockRepository.executeWithLocks(new TreeMap<>(quantities).keySet(),
+                    () -> namedLockStockService.decreaseAll(quantities));
+            stockMetrics.recordTransaction(STRATEGY, null, start);
+        });
     }
 
 }
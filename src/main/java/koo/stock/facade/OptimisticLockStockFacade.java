@@ -1,26 +1,89 @@
 package koo.stock.facade;
 
+import koo.stock.metrics.StockMetrics;
+import koo.stock.retry.ContentionTracker;
+import koo.stock.retry.RetryPolicy;
 import koo.stock.service.OptimisticLockStockService;
+import koo.stock.service.PessimisticLockStockService;
+import koo.stock.strategy.StockDecreaseStrategy;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
 @Component
-public class OptimisticLockStockFacade { // 버전이 달라져 업데이트에 실패했을 때 다시 데이터부터 가져와야하므로 해당 클래스 작성 필요
+public class OptimisticLockStockFacade implements StockDecreaseStrategy { // 버전이 달라져 업데이트에 실패했을 때 다시 데이터부터 가져와야하므로 해당 클래스 작성 필요
+
+    private static final String STRATEGY = "optimistic";
 
     private final OptimisticLockStockService optimisticLockStockService;
+    private final PessimisticLockStockService pessimisticLockStockService;
+    private final RetryPolicy retryPolicy;
+    private final ContentionTracker contentionTracker;
+    private final StockMetrics stockMetrics;
 
-    public OptimisticLockStockFacade(OptimisticLockStockService optimisticLockStockService) {
+    public OptimisticLockStockFacade(OptimisticLockStockService optimisticLockStockService,
+                                     PessimisticLockStockService pessimisticLockStockService,
+                                     RetryPolicy retryPolicy,
+                                     ContentionTracker contentionTracker,
+                                     StockMetrics stockMetrics) {
         this.optimisticLockStockService = optimisticLockStockService;
+        this.pessimisticLockStockService = pessimisticLockStockService;
+        this.retryPolicy = retryPolicy;
+        this.contentionTracker = contentionTracker;
+        this.stockMetrics = stockMetrics;
+    }
+
+    @Override
+    public String getName() {
+        return STRATEGY;
     }
 
+    @Override
+    public boolean isMixable() { // version 충돌은 재시도하고, 계속되면 pessimistic으로 우회
+        return true;
+    }
+
+    @Override
     public void decrease(Long id, Long quantity) throws InterruptedException {
-        while (true) {
+        stockMetrics.track(STRATEGY, id, () -> execute(List.of(id),
+                () -> optimisticLockStockService.decrease(id, quantity),
+                () -> pessimisticLockStockService.decreaseUntracked(id, quantity))); // fallback도 optimistic 지표로만 집계
+    }
+
+    public void decreaseAll(Map<Long, Long> quantities) throws InterruptedException {
+        stockMetrics.track(STRATEGY, null, () -> execute(quantities.keySet(),
+                () -> optimisticLockStockService.decreaseAll(quantities),
+                () -> pessimisticLockStockService.decreaseAllUntracked(quantities)));
+    }
+
+    private void execute(Collection<Long> ids, Runnable optimistic, Runnable pessimistic) throws InterruptedException {
+        if (ids.stream().anyMatch(contentionTracker::isHot)) { // 충돌이 잦은 id는 재시도 폭주 대신 처음부터 Pessimistic Lock 사용
+            pessimistic.run();
+            return;
+        }
+
+        for (int attempt = 0; attempt < retryPolicy.maxAttempts(); attempt++) {
+            long start = System.nanoTime();
             try {
-                optimisticLockStockService.decrease(id, quantity);
-                break; // 정상적으로 업데이트가 된 경우 while문 탈출
-            } catch (Exception e) {
-                Thread.sleep(50); // 버전이 달라져 업데이트에 실패했을 때 50밀리 세컨드 이후 다시 데이터부터 가져오는 작업을 수행
+                optimistic.run();
+                ids.forEach(id -> stockMetrics.recordTransaction(STRATEGY, id, start));
+                ids.forEach(id -> contentionTracker.record(id, false));
+                return; // 정상적으로 업데이트가 된 경우 탈출
+            } catch (OptimisticLockingFailureException e) { // 버전 충돌만 재시도하고 재고 부족 등은 그대로 던진다.
+                ids.forEach(id -> contentionTracker.record(id, true)); // StockStrategyRouter도 같은 충돌 비율로 판단한다.
+                ids.forEach(id -> stockMetrics.incrementRetry(STRATEGY, id));
+
+                if (attempt + 1 < retryPolicy.maxAttempts()) {
+                    Thread.sleep(retryPolicy.backoffMillis(attempt)); // 버전이 달라져 업데이트에 실패했을 때 backoff 이후 다시 데이터부터 가져오는 작업을 수행
+                }
             }
         }
+
+        // 재시도 예산을 모두 쓴 경우 Pessimistic Lock으로 한번에 처리
+        pessimistic.run();
     }
 
 }
@@ -0,0 +1,90 @@
+package koo.stock.facade;
+
+import koo.stock.cluster.ClusterMembership;
+import koo.stock.cluster.OwnerUnavailableException;
+import koo.stock.domain.OutOfStockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+/**
+ * Stock id마다 소유 서버 하나가 감소를 처리
+ * 소유 서버는 분산 lock 없이 서버 안의 단일 writer(DispatchingStockFacade)로 순서대로 반영하고,
+ * 소유 서버가 아니면 소유 서버로 HTTP 요청을 넘긴다.
+ * 넘겨준 요청에는 서버끼리 공유하는 값(stock.cluster.forward-secret)을 header로 싣고, 값이 맞는 요청만 넘겨받은 요청으로 취급한다.
+ * (외부에서 header를 붙여 소유 서버가 아닌 서버에 감소를 강제할 수 없도록, 설정하지 않으면 header를 무시한다)
+ */
+@Component
+public class OwnershipStockFacade {
+
+    public static final String FORWARDED_HEADER = "X-Stock-Forwarded";
+
+    private final ClusterMembership clusterMembership;
+    private final DispatchingStockFacade dispatchingStockFacade;
+    private final RestClient restClient;
+    private final byte[] forwardSecret;
+
+    public OwnershipStockFacade(ClusterMembership clusterMembership, DispatchingStockFacade dispatchingStockFacade,
+                                RestClient.Builder restClientBuilder,
+                                @Value("${stock.cluster.forward-secret:}") String forwardSecret,
+                                @Value("${stock.cluster.forward.connect-timeout-millis:1000}") int connectTimeoutMillis,
+                                @Value("${stock.cluster.forward.read-timeout-millis:5000}") int readTimeoutMillis) {
+        this.clusterMembership = clusterMembership;
+        this.dispatchingStockFacade = dispatchingStockFacade;
+        this.forwardSecret = forwardSecret.getBytes(StandardCharsets.UTF_8);
+
+        // 소유 서버가 응답하지 않을 때 요청 스레드가 무한정 묶이지 않도록 timeout을 건다.
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(connectTimeoutMillis);
+        requestFactory.setReadTimeout(readTimeoutMillis);
+        this.restClient = restClientBuilder.requestFactory(requestFactory).build();
+    }
+
+    /**
+     * @param forwardedBy 요청에 실린 FORWARDED_HEADER 값 (없으면 null)
+     *                    공유 값과 같으면 다른 서버가 넘겨준 요청으로 보고, 재분배 중 ring이 서로 다르더라도 다시 넘기지 않고 처리해 순환을 막는다.
+     */
+    public void decrease(Long id, Long quantity, String forwardedBy) {
+        if (isForwarded(forwardedBy) || clusterMembership.isOwner(id)) {
+            // 재분배 중 잠깐 소유 서버가 둘이 되어도 BatchStockService의 row lock이 정합성을 지킨다.
+            dispatchingStockFacade.decrease(id, quantity);
+            return;
+        }
+
+        forward(clusterMembership.owner(id), id, quantity);
+    }
+
+    private void forward(String owner, Long id, Long quantity) {
+        try {
+            restClient.post()
+                    .uri(owner + "/stocks/{id}/decrease?quantity={quantity}&strategy=owned", id, quantity)
+                    .header(FORWARDED_HEADER, new String(forwardSecret, StandardCharsets.UTF_8))
+                    .retrieve()
+                    .toBodilessEntity();
+        } catch (HttpClientErrorException e) {
+            if (e.getStatusCode() == HttpStatus.CONFLICT) { // 소유 서버의 재고 부족 응답
+                throw new OutOfStockException();
+            }
+            throw e;
+        } catch (ResourceAccessException | HttpServerErrorException e) { // 연결 실패, timeout, 소유 서버의 lock 대기 초과(503) 등
+            throw new OwnerUnavailableException(owner, id, e);
+        }
+    }
+
+    private boolean isForwarded(String forwardedBy) {
+        if (forwardedBy == null || forwardSecret.length == 0) {
+            return false;
+        }
+
+        return MessageDigest.isEqual(forwardSecret, forwardedBy.getBytes(StandardCharsets.UTF_8)); // 비교 시간으로 값을 추측할 수 없도록
+    }
+
+}
@@ -0,0 +1,70 @@
+package koo.stock.facade;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.Stock;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.RedisStockRepository;
+import koo.stock.repository.StockRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+@Component
+public class RedisCounterStockFacade { // lock 없이 Redis의 Lua script 한번으로 재고를 감소시키고, DB에는 StockWriteBehindFlusher가 비동기로 반영한다.
+
+    private final RedisStockRepository redisStockRepository;
+    private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public RedisCounterStockFacade(RedisStockRepository redisStockRepository, StockRepository stockRepository,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.redisStockRepository = redisStockRepository;
+        this.stockRepository = stockRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void decrease(Long id, Long quantity) {
+        Long remaining = redisStockRepository.decrease(id, quantity);
+
+        if (remaining == RedisStockRepository.NOT_LOADED) { // Redis에 아직 수량이 없으면 DB에서 올린 후 다시 시도
+            Stock stock = stockRepository.findById(id).orElseThrow();
+            redisStockRepository.load(id, stock.getAvailableQuantity()); // 예약된 수량은 Redis에서도 팔 수 없다.
+            remaining = redisStockRepository.decrease(id, quantity);
+        }
+
+        if (remaining < 0) {
+            throw new OutOfStockException();
+        }
+
+        eventPublisher.publishEvent(new StockChangedEvent(id, remaining)); // DB는 늦게 반영되므로 Redis의 남은 수량을 알린다.
+    }
+
+    public void decreaseAll(Map<Long, Long> quantities) {
+        Long result = redisStockRepository.decreaseAll(quantities);
+
+        if (result == RedisStockRepository.NOT_LOADED) {
+            stockRepository.findAllById(quantities.keySet())
+                    .forEach(stock -> redisStockRepository.load(stock.getId(), stock.getAvailableQuantity()));
+            result = redisStockRepository.decreaseAll(quantities);
+        }
+
+        if (result == RedisStockRepository.NOT_LOADED) {
+            throw new NoSuchElementException("존재하지 않는 Stock이 포함되어 있습니다. ids=" + quantities.keySet());
+        }
+
+        if (result < 0) {
+            throw new OutOfStockException();
+        }
+
+        quantities.keySet().forEach(id -> eventPublisher.publishEvent(StockChangedEvent.unknown(id)));
+    }
+
+    public Long getQuantity(Long id) {
+        Long quantity = redisStockRepository.getQuantity(id);
+
+        return quantity != null ? quantity : stockRepository.findById(id).orElseThrow().getAvailableQuantity();
+    }
+
+}
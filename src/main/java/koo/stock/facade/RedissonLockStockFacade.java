@@ -1,42 +1,169 @@
 package koo.stock.facade;
 
+import koo.stock.lock.LocalLockRegistry;
+import koo.stock.lock.LockAcquisitionTimeoutException;
+import koo.stock.metrics.StockMetrics;
 import koo.stock.service.StockService;
+import koo.stock.strategy.StockDecreaseStrategy;
 import org.redisson.api.RLock;
 import org.redisson.api.RedissonClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 @Component
-public class RedissonLockStockFacade {
+public class RedissonLockStockFacade implements StockDecreaseStrategy {
+
+    private static final Logger log = LoggerFactory.getLogger(RedissonLockStockFacade.class);
+    private static final String STRATEGY = "redisson";
+    private static final long WAIT_SECONDS = 30;
+    private static final long LEASE_SECONDS = 1;
 
     private final RedissonClient redissonClient;
     private final StockService stockService;
+    private final StockMetrics stockMetrics;
+    private final LocalLockRegistry<Lease> localLocks;
 
-    public RedissonLockStockFacade(RedissonClient redissonClient, StockService stockService) {
+    public RedissonLockStockFacade(RedissonClient redissonClient, StockService stockService, StockMetrics stockMetrics,
+                                   @Value("${stock.redisson.max-handoffs:32}") int maxHandoffs) {
         this.redissonClient = redissonClient;
         this.stockService = stockService;
+        this.stockMetrics = stockMetrics;
+        this.localLocks = new LocalLockRegistry<>(maxHandoffs, Lease::isFresh, this::unlock); // 기다리는 스레드가 있고 lease가 충분히 남았으면 넘겨주고, 아니면 해제
+    }
+
+    @Override
+    public String getName() {
+        return STRATEGY;
     }
 
+    @Override
     public void decrease(Long id, Long quantity) {
-        RLock lock = redissonClient.getLock(id.toString());
+        stockMetrics.track(STRATEGY, id, () -> {
+            // 서버 안에서 먼저 줄을 서고, 앞 스레드가 넘겨준 lock이 없을 때만 Redis lock을 획득한다.
+            // 서버 안에서 기다린 시간도 WAIT_SECONDS에 포함하고, Redis lock은 남은 시간만큼만 기다린다.
+            long waitStart = System.nanoTime();
+            Lease lease = lockLocally(id);
+
+            try {
+                if (lease == null) {
+                    lease = tryLock(id, TimeUnit.SECONDS.toMillis(WAIT_SECONDS) - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waitStart));
+                }
+                stockMetrics.recordLockWait(STRATEGY, id, waitStart);
+
+                if (lease == null) { // lock 획득에 실패한 경우 (감소하지 않았으므로 호출한 쪽이 알 수 있도록 예외)
+                    stockMetrics.incrementLockFailure(STRATEGY, id);
+                    log.warn("Lock 획득 실패 id={}", id);
+
+                    throw new LockAcquisitionTimeoutException(id, TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+                }
+
+                // lock 획득에 성공한 경우
+                long holdStart = System.nanoTime();
+                try {
+                    stockService.decreaseUntracked(id, quantity); // synchronized 지표로 한번 더 집계되지 않도록
+                    stockMetrics.recordTransaction(STRATEGY, id, holdStart);
+                } finally {
+                    stockMetrics.recordLockHold(STRATEGY, id, holdStart);
+                }
+            } finally {
+                localLocks.unlock(id, lease);
+            }
+        });
+    }
+
+    public void decreaseAll(Map<Long, Long> quantities) {
+        stockMetrics.track(STRATEGY, null, () -> decreaseAllLocked(quantities)); // 여러 id에 걸친 요청은 key 태그 없이(other) 집계
+    }
 
+    private void decreaseAllLocked(Map<Long, Long> quantities) {
+        RLock[] locks = new TreeMap<>(quantities).keySet().stream()
+                .map(id -> redissonClient.getLock(id.toString()))
+                .toArray(RLock[]::new);
+        RLock multiLock = redissonClient.getMultiLock(locks); // 여러 lock을 한번에 획득하고, 하나라도 실패하면 모두 반납한다.
+        boolean available = false;
+
+        long waitStart = System.nanoTime();
         try {
-            boolean available = lock.tryLock(30, 1, TimeUnit.SECONDS); // 대기 시간: 30, 유지 시간: 1
+            available = multiLock.tryLock(WAIT_SECONDS, LEASE_SECONDS, TimeUnit.SECONDS);
+            stockMetrics.recordLockWait(STRATEGY, null, waitStart);
 
-            if (!available) { // lock 획득에 실패한 경우
-                System.out.println("Lock 획득 실패");
+            if (!available) {
+                stockMetrics.incrementLockFailure(STRATEGY, null);
+                log.warn("Lock 획득 실패 ids={}", quantities.keySet());
 
-                return;
+                throw new LockAcquisitionTimeoutException(null, TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
             }
 
-            // lock 획득에 성공한 경우
-            stockService.decrease(id, quantity);
-        } catch (RuntimeException | InterruptedException e) {
+            long holdStart = System.nanoTime();
+            stockService.decreaseAllUntracked(quantities);
+            stockMetrics.recordTransaction(STRATEGY, null, holdStart);
+        } catch (InterruptedException e) {
             throw new RuntimeException(e);
         } finally {
-            lock.unlock(); // 로직 수행이 끝난 후 lock 해제
+            if (available) {
+                multiLock.unlock();
+            }
+        }
+    }
+
+    private Lease lockLocally(Long id) {
+        try {
+            return localLocks.lock(id, TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+        } catch (LockAcquisitionTimeoutException e) { // 앞 스레드들이 대기 시간을 다 쓴 경우
+            stockMetrics.incrementLockFailure(STRATEGY, id);
+            log.warn("Lock 획득 실패 id={}", id);
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 스레드 대신 요청마다 만든 소유자 id로 lock을 건다. (다른 스레드에게 넘겨준 lock을 그 스레드가 해제할 수 있도록)
+     *
+     * @return 획득에 실패하면 null
+     */
+    private Lease tryLock(Long id, long waitMillis) {
+        RLock lock = redissonClient.getLock(id.toString());
+        long ownerId = ThreadLocalRandom.current().nextLong();
+
+        try {
+            boolean available = lock.tryLockAsync(Math.max(waitMillis, 0), TimeUnit.SECONDS.toMillis(LEASE_SECONDS), TimeUnit.MILLISECONDS, ownerId) // 대기 시간: 남은 시간(최대 30초), 유지 시간: 1초
+                    .toCompletableFuture()
+                    .get();
+
+            return available ? new Lease(lock, ownerId, System.nanoTime()) : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
         }
     }
 
+    private void unlock(Lease lease) { // 로직 수행이 끝난 후 lock 해제
+        try {
+            lease.lock().unlockAsync(lease.ownerId()).toCompletableFuture().join();
+        } catch (RuntimeException e) { // 유지 시간이 지나 이미 풀린 경우
+            log.warn("Lock 해제 실패 key={}", lease.lock().getName(), e);
+        }
+    }
+
+    private record Lease(RLock lock, long ownerId, long acquiredAt) {
+
+        private boolean isFresh() { // 유지 시간의 절반이 지나기 전까지만 넘겨준다.
+            return System.nanoTime() - acquiredAt < TimeUnit.SECONDS.toNanos(LEASE_SECONDS) / 2;
+        }
+
+    }
+
 }
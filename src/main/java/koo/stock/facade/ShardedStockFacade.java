@@ -0,0 +1,57 @@
+package koo.stock.facade;
+
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.StockShardRepository;
+import koo.stock.service.ShardedStockService;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class ShardedStockFacade { // 임의의 shard부터 조건부 감소를 시도해 하나의 row lock에 요청이 몰리지 않도록 한다.
+
+    private final StockShardRepository stockShardRepository;
+    private final ShardedStockService shardedStockService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, Integer> shardCounts = new ConcurrentHashMap<>();
+
+    public ShardedStockFacade(StockShardRepository stockShardRepository, ShardedStockService shardedStockService,
+                              ApplicationEventPublisher eventPublisher) {
+        this.stockShardRepository = stockShardRepository;
+        this.shardedStockService = shardedStockService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void split(Long stockId, int shardCount) {
+        shardedStockService.split(stockId, shardCount);
+        shardCounts.put(stockId, shardCount);
+    }
+
+    public void decrease(Long stockId, Long quantity) {
+        int shardCount = shardCounts.computeIfAbsent(stockId, stockShardRepository::countByStockId);
+
+        if (shardCount == 0) {
+            shardCounts.remove(stockId);
+            throw new IllegalStateException("shard로 나누어지지 않은 Stock 입니다. id=" + stockId);
+        }
+
+        int start = ThreadLocalRandom.current().nextInt(shardCount);
+        for (int i = 0; i < shardCount; i++) { // 선택한 shard가 소진되었으면 다음 shard로 넘어간다.
+            if (stockShardRepository.decreaseIfEnough(stockId, (start + i) % shardCount, quantity) == 1) {
+                eventPublisher.publishEvent(new StockChangedEvent(stockId, getQuantity(stockId))); // Stock row 대신 shard 합계를 알린다.
+                return;
+            }
+        }
+
+        // 모든 shard가 단독으로는 부족한 경우 (shard 합계로는 충분할 수 있다)
+        shardedStockService.decreaseAcrossShards(stockId, quantity);
+    }
+
+    public Long getQuantity(Long stockId) {
+        return stockShardRepository.sumQuantity(stockId);
+    }
+
+}
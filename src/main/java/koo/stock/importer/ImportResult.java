@@ -0,0 +1,10 @@
+package koo.stock.importer;
+
+/**
+ * @param rows          반영된 행 수
+ * @param failedRows    형식이 잘못되었거나 반영에 실패한 행 수
+ * @param elapsedMillis 전체 소요 시간
+ * @param rowsPerSecond 초당 반영 행 수
+ */
+public record ImportResult(long rows, long failedRows, long elapsedMillis, long rowsPerSecond) {
+}
@@ -0,0 +1,182 @@
+package koo.stock.importer;
+
+import koo.stock.service.RestockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 대량 재고 CSV 적재 (id,productId,quantity - id가 비어 있거나 없는 id면 새 Stock, 이미 있는 id면 수량을 덮어쓴다)
+ * IDENTITY 키는 insert 마다 id를 받아와야 해서 Hibernate batch insert가 동작하지 않으므로, 엔티티를 거치지 않고 chunk 하나를 JDBC batch upsert 한번으로 쓴다.
+ * (rewriteBatchedStatements=true 이면 chunk 하나가 multi-row insert ... on duplicate key update 한번으로 전송된다, 이미 있는 Stock의 productId는 바꾸지 않는다)
+ * 이미 있는 Stock의 Redis 수량, Journal 잔량, 캐시, 품절 표시가 옛 수량으로 계속 팔지 않도록 RestockService.setAll로 chunk 단위로 함께 맞춘다.
+ * 파일은 한 줄씩 읽어 chunk-size 만큼 모이면 partitions개의 worker에 나눠 반영하고, 대기중인 chunk 수를 제한해 메모리에 파일 전체가 올라가지 않게 한다.
+ * 형식이 잘못된 행과 반영에 실패한 chunk의 행은 failedRows로 집계한다.
+ */
+@Component
+public class StockCsvImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(StockCsvImporter.class);
+
+    private static final String UPSERT_SQL = "insert into stock (id, product_id, quantity, version) values (?, ?, ?, 0) " + // id가 null이면 새로 발급
+            "on duplicate key update quantity = values(quantity), version = version + 1";
+    private static final long AWAIT_TIMEOUT_MINUTES = 60;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final RestockService restockService;
+    private final int chunkSize;
+    private final int partitions;
+
+    public StockCsvImporter(JdbcTemplate jdbcTemplate, RestockService restockService,
+                            @Value("${stock.import.chunk-size:1000}") int chunkSize,
+                            @Value("${stock.import.partitions:4}") int partitions) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.restockService = restockService;
+        this.chunkSize = chunkSize;
+        this.partitions = partitions;
+    }
+
+    public ImportResult importCsv(InputStream input) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        AtomicLong rows = new AtomicLong();
+        AtomicLong failedRows = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(partitions);
+        Semaphore pending = new Semaphore(partitions * 2); // 읽기가 쓰기보다 빨라도 대기 chunk가 쌓이지 않도록 제한
+        boolean terminated = false;
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            List<Object[]> chunk = new ArrayList<>(chunkSize);
+            String line;
+            long lineNumber = 0;
+
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (line.isBlank() || (lineNumber == 1 && isHeader(line))) {
+                    continue;
+                }
+
+                Object[] row;
+                try {
+                    row = parse(line, lineNumber);
+                } catch (IllegalArgumentException e) { // 잘못된 행 하나 때문에 이미 반영된 chunk와 나머지 행이 어긋나지 않도록 건너뛴다.
+                    log.warn("재고 CSV 행 건너뜀 {}", e.getMessage());
+                    failedRows.incrementAndGet();
+                    continue;
+                }
+
+                chunk.add(row);
+
+                if (chunk.size() == chunkSize) {
+                    submit(executor, pending, chunk, rows, failedRows);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+
+            if (!chunk.isEmpty()) {
+                submit(executor, pending, chunk, rows, failedRows);
+            }
+        } finally {
+            executor.shutdown();
+            terminated = executor.awaitTermination(AWAIT_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        }
+
+        if (!terminated) { // 집계가 끝나지 않은 결과를 완료로 돌려주지 않는다.
+            executor.shutdownNow();
+            throw new IllegalStateException("재고 CSV 적재가 " + AWAIT_TIMEOUT_MINUTES + "분 안에 끝나지 않았습니다. rows=" + rows.get() + ", failed=" + failedRows.get());
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        ImportResult result = new ImportResult(rows.get(), failedRows.get(), elapsedMillis,
+                rows.get() * 1000 / Math.max(1, elapsedMillis));
+        log.info("재고 CSV 적재 완료 rows={}, failed={}, elapsed={}ms, rows/s={}",
+                result.rows(), result.failedRows(), result.elapsedMillis(), result.rowsPerSecond());
+
+        return result;
+    }
+
+    private void submit(ExecutorService executor, Semaphore pending, List<Object[]> chunk,
+                        AtomicLong rows, AtomicLong failedRows) throws InterruptedException {
+        pending.acquire();
+
+        executor.execute(() -> {
+            try {
+                write(chunk);
+                rows.addAndGet(chunk.size());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failedRows.addAndGet(chunk.size());
+            } catch (RuntimeException e) { // 실패한 chunk만 건너뛰고 나머지는 계속 적재
+                log.warn("재고 CSV chunk 적재 실패 rows={}", chunk.size(), e);
+                failedRows.addAndGet(chunk.size());
+            } finally {
+                pending.release();
+            }
+        });
+    }
+
+    private void write(List<Object[]> chunk) throws InterruptedException {
+        List<Object[]> newRows = new ArrayList<>();
+        Map<Long, Object[]> rowsById = new LinkedHashMap<>(); // 같은 id가 여러번 나오면 마지막 행으로 덮어쓴다.
+        for (Object[] row : chunk) {
+            if (row[0] == null) {
+                newRows.add(row);
+            } else {
+                rowsById.put((Long) row[0], row);
+            }
+        }
+
+        Map<Long, Long> quantities = new LinkedHashMap<>();
+        rowsById.forEach((id, row) -> quantities.put(id, (Long) row[2]));
+
+        restockService.setAll(quantities, rowQuantities -> { // journal 잔량을 가진 id는 이력으로 반영되므로 row에 쓰지 않는다.
+            List<Object[]> batch = new ArrayList<>(newRows);
+            rowQuantities.keySet().forEach(id -> batch.add(rowsById.get(id)));
+            jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+        });
+    }
+
+    private Object[] parse(String line, long lineNumber) {
+        String[] columns = line.split(",", -1);
+
+        if (columns.length != 3) {
+            throw new IllegalArgumentException("CSV 형식 오류 (id,productId,quantity) line=" + lineNumber);
+        }
+
+        try {
+            Long id = columns[0].isBlank() ? null : Long.valueOf(columns[0].trim());
+            Long productId = Long.valueOf(columns[1].trim());
+            Long quantity = Long.valueOf(columns[2].trim());
+
+            if (quantity < 0) {
+                throw new IllegalArgumentException("재고는 0개 미만일 수 없습니다. line=" + lineNumber);
+            }
+
+            return new Object[]{id, productId, quantity};
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("CSV 숫자 형식 오류 line=" + lineNumber, e);
+        }
+    }
+
+    private boolean isHeader(String line) {
+        return !line.isEmpty() && Character.isLetter(line.charAt(0));
+    }
+
+}
@@ -0,0 +1,160 @@
+package koo.stock.intake;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import koo.stock.cache.StockQuantityCache;
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.StockBusyException;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.service.PessimisticLockStockService;
+import koo.stock.soldout.SoldOutRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 재고 감소 접수 단계
+ * 요청을 크기가 고정된 ring buffer(ArrayBlockingQueue)에 넣고 ticket을 바로 돌려준 뒤, 정해진 수의 worker가 DB가 감당할 수 있는 속도로 꺼내 처리한다.
+ * 동시에 DB로 가는 요청이 worker 수로 제한되므로 몰리는 순간에도 커넥션 풀과 row lock 대기가 늘어나지 않는다.
+ * 처리될 수 없는 요청은 큐에 넣기 전에 거절한다.
+ *  - 품절로 표시된 id이거나, 캐시된 재고에서 이미 접수된 수량을 빼면 부족한 경우: OutOfStockException (품절)
+ *  - 큐가 가득 찬 경우: StockBusyException (나중에 다시 시도)
+ * 접수된 수량은 감소가 commit되어 캐시가 갱신되기 직전에 빼므로, 같은 수량이 캐시와 접수 수량에 두번 잡히지 않는다.
+ */
+@Component
+public class StockIntake {
+
+    private static final Logger log = LoggerFactory.getLogger(StockIntake.class);
+
+    private final PessimisticLockStockService pessimisticLockStockService;
+    private final StockQuantityCache stockQuantityCache;
+    private final SoldOutRegistry soldOutRegistry;
+    private final BlockingQueue<Ticket> backlog;
+    private final ExecutorService workers;
+    private final Map<Long, Long> pendingQuantities = new ConcurrentHashMap<>(); // id별로 접수됐지만 아직 처리되지 않은 수량 (0이 되면 지운다)
+    private final ThreadLocal<Ticket> processing = new ThreadLocal<>(); // worker가 처리중이고 아직 접수 수량에서 빼지 않은 ticket
+    private final Cache<String, Ticket> tickets;
+    private volatile boolean running = true;
+
+    public StockIntake(PessimisticLockStockService pessimisticLockStockService, StockQuantityCache stockQuantityCache,
+                       SoldOutRegistry soldOutRegistry,
+                       @Value("${stock.intake.capacity:10000}") int capacity,
+                       @Value("${stock.intake.workers:16}") int workerCount,
+                       @Value("${stock.intake.ticket-ttl-millis:600000}") long ticketTtlMillis) {
+        this.pessimisticLockStockService = pessimisticLockStockService;
+        this.stockQuantityCache = stockQuantityCache;
+        this.soldOutRegistry = soldOutRegistry;
+        this.backlog = new ArrayBlockingQueue<>(capacity);
+        this.tickets = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ticketTtlMillis))
+                .build();
+        this.workers = Executors.newFixedThreadPool(workerCount); // 커넥션 풀(40)보다 작게 두어 다른 요청이 쓸 커넥션을 남긴다.
+
+        for (int i = 0; i < workerCount; i++) {
+            workers.execute(this::work);
+        }
+    }
+
+    public Ticket submit(Long id, Long quantity) {
+        if (quantity == null || quantity <= 0) { // 음수 접수는 접수 수량을 줄여 다른 요청이 캐시된 재고를 넘어서 접수되게 만든다.
+            throw new IllegalArgumentException("감소 수량은 0보다 커야 합니다.");
+        }
+
+        soldOutRegistry.check(id);
+
+        long reserved = addPending(id, quantity);
+
+        Optional<Long> cached = stockQuantityCache.findCachedQuantity(id);
+        if (cached.isPresent() && cached.get() < reserved) { // 앞서 접수된 요청이 모두 성공하면 남지 않는 재고
+            addPending(id, -quantity);
+            throw new OutOfStockException();
+        }
+
+        Ticket ticket = new Ticket(id, quantity);
+        if (!backlog.offer(ticket)) {
+            addPending(id, -quantity);
+            throw new StockBusyException(id);
+        }
+
+        tickets.put(ticket.getId(), ticket);
+
+        return ticket;
+    }
+
+    public Optional<Ticket> findTicket(String ticketId) {
+        return Optional.ofNullable(tickets.getIfPresent(ticketId));
+    }
+
+    private void work() {
+        while (running) {
+            Ticket ticket;
+            try {
+                ticket = backlog.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            processing.set(ticket);
+            try {
+                pessimisticLockStockService.decrease(ticket.getStockId(), ticket.getQuantity()); // 변경 후 수량을 캐시에 반영해 다음 접수의 품절 판단에 쓰인다.
+                ticket.complete(Ticket.Status.SUCCEEDED);
+            } catch (OutOfStockException e) {
+                ticket.complete(Ticket.Status.SOLD_OUT);
+            } catch (RuntimeException e) {
+                log.warn("접수된 재고 감소 처리 실패 ticket={}, id={}", ticket.getId(), ticket.getStockId(), e);
+                ticket.complete(Ticket.Status.FAILED);
+            } finally {
+                Ticket unreleased = processing.get(); // 실패나 rollback으로 commit 이벤트를 받지 못한 경우
+                processing.remove();
+                if (unreleased != null) {
+                    addPending(unreleased.getStockId(), -unreleased.getQuantity());
+                }
+            }
+        }
+    }
+
+    // worker의 감소가 commit되면 StockQuantityCache가 변경 후 수량을 반영하기 전에 접수 수량에서 먼저 뺀다. (같은 worker 스레드에서 실행)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener
+    public void on(StockChangedEvent event) {
+        Ticket ticket = processing.get();
+
+        if (ticket != null && ticket.getStockId().equals(event.stockId())) {
+            processing.remove();
+            addPending(ticket.getStockId(), -ticket.getQuantity());
+        }
+    }
+
+    private long addPending(Long id, long quantity) {
+        long[] pending = new long[1];
+        pendingQuantities.compute(id, (key, current) -> {
+            pending[0] = (current == null ? 0 : current) + quantity;
+
+            return pending[0] == 0 ? null : pending[0]; // 처리중인 요청이 없는 id는 남기지 않는다.
+        });
+
+        return pending[0];
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        workers.shutdownNow();
+    }
+
+}
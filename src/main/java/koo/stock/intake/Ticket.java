@@ -0,0 +1,41 @@
+package koo.stock.intake;
+
+import java.util.UUID;
+
+public class Ticket { // 접수된 재고 감소 요청 (접수 즉시 반환하고, 처리 결과는 status로 확인한다)
+
+    public enum Status {
+        PENDING, SUCCEEDED, SOLD_OUT, FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Long stockId;
+    private final Long quantity;
+    private volatile Status status = Status.PENDING;
+
+    public Ticket(Long stockId, Long quantity) {
+        this.stockId = stockId;
+        this.quantity = quantity;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getStockId() {
+        return stockId;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    void complete(Status status) {
+        this.status = status;
+    }
+
+}
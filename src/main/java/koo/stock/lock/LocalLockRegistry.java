@@ -0,0 +1,125 @@
+package koo.stock.lock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * 분산 lock 앞에 두는 서버 내부 lock (2단계 lock)
+ * 같은 key를 기다리는 스레드들은 먼저 서버 안에서 줄을 서므로, key마다 한 스레드만 Redis lock을 두고 경쟁한다.
+ * 서버 안에서 줄을 선 시간도 분산 lock의 대기 시간에 포함해, 앞 스레드가 오래 걸려도 요청이 대기 시간보다 오래 멈추지 않는다.
+ * 뒤에 기다리는 스레드가 있으면 쥐고 있던 분산 lock(T)을 해제하지 않고 그대로 넘겨줘 Redis 왕복을 줄인다.
+ * 다른 서버가 굶지 않도록 넘겨주는 횟수는 maxHandoffs로 제한하고, 기다리는 스레드가 없는 key의 항목은 바로 제거한다.
+ */
+public class LocalLockRegistry<T> {
+
+    private final int maxHandoffs;
+    private final Predicate<T> reusable;
+    private final Consumer<T> release;
+    private final Map<Long, Slot<T>> slots = new ConcurrentHashMap<>();
+
+    /**
+     * @param reusable 넘겨줘도 되는 상태인지 (lease가 남아 있는지 등)
+     * @param release  넘겨주지 않을 때 분산 lock을 해제하는 방법
+     */
+    public LocalLockRegistry(int maxHandoffs, Predicate<T> reusable, Consumer<T> release) {
+        this.maxHandoffs = maxHandoffs;
+        this.reusable = reusable;
+        this.release = release;
+    }
+
+    /**
+     * 분산 lock과 같은 대기 시간(waitMillis) 안에서만 서버 내부 lock을 기다린다.
+     * 여기서 기다린 시간도 대기 시간에 포함되므로, 호출한 쪽은 남은 시간만큼만 분산 lock을 기다려야 한다.
+     *
+     * @return 앞 스레드가 넘겨준 분산 lock, 없으면 null (호출한 쪽에서 새로 획득한다)
+     * @throws LockAcquisitionTimeoutException 대기 시간 안에 서버 내부 lock을 얻지 못한 경우 (unlock을 호출하지 않는다)
+     */
+    public T lock(Long key, long waitMillis) throws InterruptedException {
+        Slot<T> slot = slots.compute(key, (k, s) -> {
+            Slot<T> current = s == null ? new Slot<>() : s;
+            current.refs.incrementAndGet(); // lock을 쥐고 있거나 기다리는 스레드 수
+
+            return current;
+        });
+
+        boolean locked = false;
+        try {
+            locked = slot.local.tryLock(waitMillis, TimeUnit.MILLISECONDS);
+        } finally {
+            if (!locked) { // 기다리다 포기한 스레드는 더 이상 넘겨받을 대상이 아니다.
+                leave(key);
+            }
+        }
+
+        if (!locked) {
+            throw new LockAcquisitionTimeoutException(key, waitMillis);
+        }
+
+        T held = slot.held;
+        slot.held = null;
+
+        return held;
+    }
+
+    /**
+     * @param held 쥐고 있는 분산 lock (획득하지 못했으면 null)
+     */
+    public void unlock(Long key, T held) {
+        Slot<T> slot = slots.get(key);
+
+        try {
+            if (held == null) {
+                return;
+            }
+
+            if (slot.refs.get() > 1 && slot.handoffs < maxHandoffs && reusable.test(held)) {
+                slot.held = held;
+                slot.handoffs++;
+                return;
+            }
+
+            slot.handoffs = 0;
+            release.accept(held);
+        } finally {
+            slot.local.unlock();
+            leave(key);
+        }
+    }
+
+    int size() { // 남아 있는 key 항목 수
+        return slots.size();
+    }
+
+    private void leave(Long key) {
+        List<T> orphans = new ArrayList<>(1);
+        slots.computeIfPresent(key, (k, s) -> {
+            if (s.refs.decrementAndGet() > 0) {
+                return s;
+            }
+
+            if (s.held != null) { // 넘겨받기로 한 스레드가 대기 시간을 넘겨 포기한 경우, 아무도 가져가지 않으므로 해제
+                orphans.add(s.held);
+            }
+            return null;
+        });
+
+        orphans.forEach(release);
+    }
+
+    private static class Slot<T> {
+
+        private final ReentrantLock local = new ReentrantLock(true); // 먼저 온 스레드가 먼저 넘겨받도록 fair
+        private final AtomicInteger refs = new AtomicInteger();
+        private T held; // 다음 스레드에게 넘겨줄 분산 lock (local lock을 쥔 스레드만 접근)
+        private int handoffs;
+
+    }
+
+}
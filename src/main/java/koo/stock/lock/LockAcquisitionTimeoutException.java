@@ -0,0 +1,9 @@
+package koo.stock.lock;
+
+public class LockAcquisitionTimeoutException extends RuntimeException {
+
+    public LockAcquisitionTimeoutException(Long key, long waitMillis) {
+        super("Lock 획득 대기시간 초과 key=" + key + ", wait=" + waitMillis + "ms");
+    }
+
+}
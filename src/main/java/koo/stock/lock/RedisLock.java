@@ -0,0 +1,27 @@
+package koo.stock.lock;
+
+public class RedisLock { // 획득한 Lettuce lock의 소유 정보
+
+    private final Long key;
+    private final String ownerToken; // compare-and-delete 해제, lease 연장 시 소유자 확인용
+    private final Long fencingToken; // key별로 단조 증가, Stock 갱신 시 오래된 소유자의 쓰기를 막는다.
+
+    public RedisLock(Long key, String ownerToken, Long fencingToken) {
+        this.key = key;
+        this.ownerToken = ownerToken;
+        this.fencingToken = fencingToken;
+    }
+
+    public Long getKey() {
+        return key;
+    }
+
+    public String getOwnerToken() {
+        return ownerToken;
+    }
+
+    public Long getFencingToken() {
+        return fencingToken;
+    }
+
+}
@@ -0,0 +1,188 @@
+package koo.stock.lock;
+
+import jakarta.annotation.PreDestroy;
+import koo.stock.repository.RedisLockRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Deque;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Lettuce(setnx) lock을 Thread.sleep 없이 획득하기 위한 엔진
+ * lock 해제 publish를 받으면 해당 key의 가장 오래 기다린 대기자 하나만 깨워 바로 다시 시도하고,
+ * 메세지가 유실되거나 다른 서버가 먼저 획득하는 경우를 위해 jitter가 들어간 지수 backoff로도 재시도한다.
+ */
+@Component
+public class RedisLockAcquirer implements MessageListener {
+
+    private final RedisLockRepository redisLockRepository;
+    private final RedisLockWatchdog redisLockWatchdog;
+    private final long leaseMillis;
+    private final long minBackoffMillis;
+    private final long maxBackoffMillis;
+    private final ScheduledExecutorService scheduler;
+    private final Map<Long, Deque<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    public RedisLockAcquirer(RedisLockRepository redisLockRepository, RedisLockWatchdog redisLockWatchdog,
+                             @Value("${stock.lettuce.lease-millis:1000}") long leaseMillis,
+                             @Value("${stock.lettuce.min-backoff-millis:1}") long minBackoffMillis,
+                             @Value("${stock.lettuce.max-backoff-millis:50}") long maxBackoffMillis,
+                             @Value("${stock.lettuce.acquirer-threads:2}") int acquirerThreads) {
+        this.redisLockRepository = redisLockRepository;
+        this.redisLockWatchdog = redisLockWatchdog;
+        this.leaseMillis = leaseMillis;
+        this.minBackoffMillis = minBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.scheduler = Executors.newScheduledThreadPool(acquirerThreads);
+    }
+
+    /**
+     * @return lock을 획득하면 RedisLock, waitMillis 안에 획득하지 못하면 null로 완료된다.
+     */
+    public CompletableFuture<RedisLock> acquire(Long key, long waitMillis) {
+        Waiter waiter = new Waiter(key);
+
+        waiter.timeout = scheduler.schedule(() -> expire(waiter), waitMillis, TimeUnit.MILLISECONDS);
+        attempt(waiter);
+
+        return waiter.future;
+    }
+
+    /**
+     * 기다리던 스레드가 interrupt 등으로 결과를 더 이상 받지 않을 때 호출
+     * 아직 획득 전이면 대기를 취소하고, 이미 획득했다면 아무도 해제하지 않아 watchdog이 계속 연장하지 않도록 바로 반납한다.
+     */
+    public void cancel(CompletableFuture<RedisLock> future) {
+        if (future.cancel(false) || future.isCompletedExceptionally()) {
+            return;
+        }
+
+        RedisLock lock = future.getNow(null);
+        if (lock != null) {
+            release(lock);
+        }
+    }
+
+    public void release(RedisLock lock) {
+        redisLockWatchdog.unwatch(lock);
+        redisLockRepository.unlock(lock.getKey(), lock.getOwnerToken());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) { // lock 해제 알림 -> 대기자 하나를 깨운다.
+        Long key = Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8));
+        Deque<Waiter> queue = waiters.get(key);
+        Waiter waiter = queue == null ? null : queue.pollFirst();
+
+        if (waiter != null) {
+            scheduler.execute(() -> attempt(waiter));
+        }
+    }
+
+    private void attempt(Waiter waiter) {
+        waiter.mutex.lock(); // 알림과 backoff 타이머가 동시에 시도하지 않도록 한다. (virtual thread pinning을 피하기 위해 synchronized 대신 사용)
+        try {
+            if (waiter.future.isDone()) { // 대기시간 초과나 취소로 이미 끝난 대기자
+                complete(waiter);
+                return;
+            }
+
+            if (waiter.retry != null) {
+                waiter.retry.cancel(false);
+            }
+
+            Long fencingToken;
+            try {
+                fencingToken = redisLockRepository.lock(waiter.key, waiter.ownerToken, leaseMillis);
+            } catch (RuntimeException e) {
+                complete(waiter);
+                waiter.future.completeExceptionally(e);
+                return;
+            }
+
+            if (fencingToken != null && fencingToken > 0) {
+                complete(waiter);
+
+                RedisLock lock = new RedisLock(waiter.key, waiter.ownerToken, fencingToken);
+                redisLockWatchdog.watch(lock, leaseMillis);
+
+                if (!waiter.future.complete(lock)) { // 그 사이 대기시간이 초과된 경우 획득한 lock을 바로 반납
+                    release(lock);
+                }
+
+                return;
+            }
+
+            Deque<Waiter> queue = waiters.computeIfAbsent(waiter.key, k -> new ConcurrentLinkedDeque<>());
+            if (!queue.contains(waiter)) {
+                queue.addFirst(waiter); // 깨어났다가 실패한 대기자는 다시 맨 앞에서 기다린다.
+            }
+
+            waiter.retry = scheduler.schedule(() -> attempt(waiter), backoff(waiter.attempts.getAndIncrement()), TimeUnit.MILLISECONDS);
+        } finally {
+            waiter.mutex.unlock();
+        }
+    }
+
+    private void expire(Waiter waiter) {
+        waiter.mutex.lock();
+        try {
+            if (waiter.future.complete(null)) {
+                complete(waiter);
+            }
+        } finally {
+            waiter.mutex.unlock();
+        }
+    }
+
+    private void complete(Waiter waiter) {
+        if (waiter.timeout != null) {
+            waiter.timeout.cancel(false);
+        }
+
+        if (waiter.retry != null) {
+            waiter.retry.cancel(false);
+        }
+
+        Deque<Waiter> queue = waiters.get(waiter.key);
+        if (queue != null) {
+            queue.remove(waiter);
+        }
+    }
+
+    private long backoff(int attempts) { // 지수적으로 늘어나는 상한 안에서 무작위로 고른다. (equal jitter)
+        long cap = Math.min(maxBackoffMillis, minBackoffMillis << Math.min(attempts, 16));
+
+        return Math.max(1, cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private static class Waiter {
+
+        private final Long key;
+        private final String ownerToken = UUID.randomUUID().toString();
+        private final CompletableFuture<RedisLock> future = new CompletableFuture<>();
+        private final AtomicInteger attempts = new AtomicInteger();
+        private final ReentrantLock mutex = new ReentrantLock();
+        private ScheduledFuture<?> timeout;
+        private ScheduledFuture<?> retry;
+
+        private Waiter(Long key) {
+            this.key = key;
+        }
+
+    }
+
+}
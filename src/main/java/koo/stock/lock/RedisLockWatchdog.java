@@ -0,0 +1,62 @@
+package koo.stock.lock;
+
+import jakarta.annotation.PreDestroy;
+import koo.stock.repository.RedisLockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.*;
+
+@Component
+public class RedisLockWatchdog { // lock을 쥐고 있는 동안 lease를 주기적으로 연장해 짧은 lease로도 작업 도중 lock이 풀리지 않게 한다.
+
+    private static final Logger log = LoggerFactory.getLogger(RedisLockWatchdog.class);
+
+    private final RedisLockRepository redisLockRepository;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Map<String, ScheduledFuture<?>> renewals = new ConcurrentHashMap<>();
+
+    public RedisLockWatchdog(RedisLockRepository redisLockRepository) {
+        this.redisLockRepository = redisLockRepository;
+    }
+
+    public void watch(RedisLock lock, long leaseMillis) {
+        long interval = Math.max(1, leaseMillis / 3); // lease의 1/3마다 연장
+
+        ScheduledFuture<?> renewal = scheduler.scheduleAtFixedRate(() -> renew(lock, leaseMillis),
+                interval, interval, TimeUnit.MILLISECONDS);
+        renewals.put(lock.getOwnerToken(), renewal);
+    }
+
+    public void unwatch(RedisLock lock) {
+        ScheduledFuture<?> renewal = renewals.remove(lock.getOwnerToken());
+
+        if (renewal != null) {
+            renewal.cancel(false);
+        }
+    }
+
+    public boolean isWatched(RedisLock lock) { // 연장에 실패해 감시를 멈춘 lock은 더 이상 소유를 보장할 수 없다.
+        return renewals.containsKey(lock.getOwnerToken());
+    }
+
+    private void renew(RedisLock lock, long leaseMillis) {
+        try {
+            if (!redisLockRepository.renew(lock.getKey(), lock.getOwnerToken(), leaseMillis)) {
+                // 이미 lease가 만료되어 다른 주체가 가져간 경우 (이후 쓰기는 fencing token 검사로 거절된다)
+                log.warn("lock lease 연장 실패 key={}", lock.getKey());
+                unwatch(lock);
+            }
+        } catch (RuntimeException e) { // 일시적인 Redis 오류는 다음 주기에 다시 시도
+            log.warn("lock lease 연장 중 오류 key={}", lock.getKey(), e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+}
@@ -0,0 +1,9 @@
+package koo.stock.lock;
+
+public class StaleFencingTokenException extends RuntimeException {
+
+    public StaleFencingTokenException(Long key, Long fencingToken) {
+        super("lease가 만료된 lock의 쓰기 요청입니다. key=" + key + ", fencingToken=" + fencingToken);
+    }
+
+}
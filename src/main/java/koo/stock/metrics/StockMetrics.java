@@ -0,0 +1,109 @@
+package koo.stock.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import koo.stock.domain.OutOfStockException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 재고 감소 전략별 계측 (actuator /actuator/prometheus 로 노출)
+ * 모든 지표는 strategy 태그를 가지며, stock.metrics.hot-keys 에 등록된 id만 key 태그를 따로 가진다. (나머지는 other)
+ * 요청마다 Meter를 새로 찾지 않도록 태그 조합별로 한번 만든 Meter를 재사용한다.
+ */
+@Component
+public class StockMetrics {
+
+    private static final String OTHER_KEY = "other";
+
+    private final MeterRegistry meterRegistry;
+    private final Set<Long> hotKeys;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> inFlights = new ConcurrentHashMap<>();
+
+    public StockMetrics(MeterRegistry meterRegistry, @Value("${stock.metrics.hot-keys:}") List<Long> hotKeys) {
+        this.meterRegistry = meterRegistry;
+        this.hotKeys = Set.copyOf(hotKeys);
+    }
+
+    /**
+     * 진행중인 요청 수와 재고 부족 실패를 함께 기록하며 action을 실행
+     */
+    public <E extends Exception> void track(String strategy, Long id, Action<E> action) throws E {
+        AtomicInteger inFlight = inFlights.computeIfAbsent(strategy,
+                s -> meterRegistry.gauge("stock.decrease.in.flight", Tags.of("strategy", s), new AtomicInteger()));
+
+        inFlight.incrementAndGet();
+        try {
+            action.run();
+        } catch (OutOfStockException e) {
+            counter("stock.decrease.out.of.stock", strategy, id).increment();
+            throw e;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    public void recordLockWait(String strategy, Long id, long startNanos) {
+        record("stock.lock.wait", strategy, id, startNanos);
+    }
+
+    public void recordLockHold(String strategy, Long id, long startNanos) {
+        record("stock.lock.hold", strategy, id, startNanos);
+    }
+
+    public void recordTransaction(String strategy, Long id, long startNanos) {
+        record("stock.db.transaction", strategy, id, startNanos);
+    }
+
+    public void incrementRetry(String strategy, Long id) {
+        counter("stock.optimistic.retry", strategy, id).increment();
+    }
+
+    public void incrementLockFailure(String strategy, Long id) {
+        counter("stock.lock.failure", strategy, id).increment();
+    }
+
+    public void incrementRoute(String strategy, Long id) { // StockStrategyRouter가 id의 방식을 새로 정하거나 바꾼 횟수 (strategy는 바뀐 뒤의 방식)
+        counter("stock.router.decision", strategy, id).increment();
+    }
+
+    public void incrementRoutedRequest(String strategy, Long id) { // StockStrategyRouter가 각 방식으로 보낸 요청 수
+        counter("stock.router.request", strategy, id).increment();
+    }
+
+    private void record(String name, String strategy, Long id, long startNanos) {
+        String key = key(id);
+
+        timers.computeIfAbsent(name + ':' + strategy + ':' + key,
+                        k -> Timer.builder(name).tags("strategy", strategy, "key", key).register(meterRegistry))
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Counter counter(String name, String strategy, Long id) {
+        String key = key(id);
+
+        return counters.computeIfAbsent(name + ':' + strategy + ':' + key,
+                k -> Counter.builder(name).tags("strategy", strategy, "key", key).register(meterRegistry));
+    }
+
+    private String key(Long id) { // 태그 값의 종류가 무한히 늘어나지 않도록 지정된 hot key만 구분한다.
+        return id != null && hotKeys.contains(id) ? id.toString() : OTHER_KEY;
+    }
+
+    @FunctionalInterface
+    public interface Action<E extends Exception> {
+        void run() throws E;
+    }
+
+}
@@ -0,0 +1,53 @@
+package koo.stock.reactive;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.StockBusyException;
+import koo.stock.lock.LockAcquisitionTimeoutException;
+import koo.stock.soldout.SoldOutRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+@RestController
+@RequestMapping("/reactive/stocks")
+public class ReactiveStockController { // Mono를 반환하면 결과를 기다리는 동안 요청 스레드를 반납한다. (servlet async)
+
+    private final ReactiveStockService reactiveStockService;
+    private final SoldOutRegistry soldOutRegistry;
+
+    public ReactiveStockController(ReactiveStockService reactiveStockService, SoldOutRegistry soldOutRegistry) {
+        this.reactiveStockService = reactiveStockService;
+        this.soldOutRegistry = soldOutRegistry;
+    }
+
+    @PostMapping("/{id}/decrease")
+    public Mono<ResponseEntity<Void>> decrease(@PathVariable Long id,
+                                               @RequestParam Long quantity,
+                                               @RequestParam(defaultValue = "conditional") String strategy) {
+        if (quantity <= 0) { // 음수 감소는 조건부 update에서 증가가 되므로 DB나 lock에 닿기 전에 거절
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        soldOutRegistry.check(id);
+
+        return reactiveStockService.decrease(id, quantity, strategy)
+                .then(Mono.just(ResponseEntity.ok().build()));
+    }
+
+    @ExceptionHandler(OutOfStockException.class)
+    public ResponseEntity<Void> outOfStock() {
+        return ResponseEntity.status(HttpStatus.CONFLICT).build();
+    }
+
+    @ExceptionHandler(StockBusyException.class)
+    public ResponseEntity<Void> busy() {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+    }
+
+    @ExceptionHandler(LockAcquisitionTimeoutException.class)
+    public ResponseEntity<Void> lockTimeout() { // 감소가 일어나지 않았으므로 나중에 다시 시도하도록 503
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+    }
+
+}
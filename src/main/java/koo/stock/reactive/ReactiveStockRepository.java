@@ -0,0 +1,28 @@
+package koo.stock.reactive;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+@Component
+public class ReactiveStockRepository { // R2DBC로 Stock 테이블을 갱신 (JPA의 StockRepository와 같은 조건부 update)
+
+    private final DatabaseClient databaseClient;
+
+    public ReactiveStockRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * 재고가 충분할 때만 감소 (반환값이 0이면 재고 부족이거나 존재하지 않는 Stock)
+     * JPA로 갱신하는 다른 방식과 섞여도 안전하도록 version을 함께 올리고, 예약된 수량은 제외하고 확인한다.
+     */
+    public Mono<Long> decreaseIfEnough(Long id, Long quantity) {
+        return databaseClient.sql("update stock set quantity = quantity - :quantity, version = version + 1 where id = :id and quantity - reserved >= :quantity")
+                .bind("id", id)
+                .bind("quantity", quantity)
+                .fetch()
+                .rowsUpdated();
+    }
+
+}
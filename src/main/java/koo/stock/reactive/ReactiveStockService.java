@@ -0,0 +1,96 @@
+package koo.stock.reactive;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.StockBusyException;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.lock.LockAcquisitionTimeoutException;
+import org.redisson.api.RLockReactive;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.RedissonReactiveClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking 재고 감소
+ * 대기하는 동안 스레드를 점유하지 않으므로 in-flight 요청 수가 스레드 수나 커넥션 풀 크기에 묶이지 않는다.
+ * conditional: R2DBC 조건부 update 한번 / redisson: Redisson reactive lock 안에서 조건부 update
+ * key별 in-flight 요청이 max-in-flight-per-key를 넘으면 큐에 쌓지 않고 바로 거절한다. (backpressure)
+ */
+@Service
+public class ReactiveStockService {
+
+    private final ReactiveStockRepository reactiveStockRepository;
+    private final RedissonReactiveClient redissonReactiveClient;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int maxInFlightPerKey;
+    private final long lockWaitMillis;
+    private final long lockLeaseMillis;
+    private final Map<Long, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public ReactiveStockService(ReactiveStockRepository reactiveStockRepository, RedissonClient redissonClient,
+                                ApplicationEventPublisher eventPublisher,
+                                @Value("${stock.reactive.max-in-flight-per-key:256}") int maxInFlightPerKey,
+                                @Value("${stock.reactive.lock-wait-millis:3000}") long lockWaitMillis,
+                                @Value("${stock.reactive.lock-lease-millis:1000}") long lockLeaseMillis) {
+        this.reactiveStockRepository = reactiveStockRepository;
+        this.redissonReactiveClient = redissonClient.reactive();
+        this.eventPublisher = eventPublisher;
+        this.maxInFlightPerKey = maxInFlightPerKey;
+        this.lockWaitMillis = lockWaitMillis;
+        this.lockLeaseMillis = lockLeaseMillis;
+    }
+
+    public Mono<Void> decrease(Long id, Long quantity, String strategy) {
+        return Mono.defer(() -> {
+            AtomicInteger count = inFlight.computeIfAbsent(id, k -> new AtomicInteger());
+
+            if (count.incrementAndGet() > maxInFlightPerKey) {
+                release(id, count);
+                return Mono.error(new StockBusyException(id));
+            }
+
+            Mono<Void> decrease = "redisson".equals(strategy) ? decreaseWithLock(id, quantity) : decreaseConditionally(id, quantity);
+
+            return decrease.doFinally(signal -> release(id, count));
+        });
+    }
+
+    private Mono<Void> decreaseConditionally(Long id, Long quantity) {
+        return reactiveStockRepository.decreaseIfEnough(id, quantity)
+                .flatMap(updated -> updated == 0 ? Mono.error(new OutOfStockException()) : publish(id));
+    }
+
+    private Mono<Void> decreaseWithLock(Long id, Long quantity) {
+        // reactive lock은 스레드로 소유자를 구분할 수 없으므로 요청마다 소유자 id를 만든다. (key는 RedissonLockStockFacade와 같아 서로 배제된다)
+        RLockReactive lock = redissonReactiveClient.getLock(id.toString());
+        long ownerId = ThreadLocalRandom.current().nextLong();
+
+        return Mono.usingWhen(
+                lock.tryLock(lockWaitMillis, lockLeaseMillis, TimeUnit.MILLISECONDS, ownerId),
+                acquired -> acquired
+                        ? decreaseConditionally(id, quantity)
+                        : Mono.error(new LockAcquisitionTimeoutException(id, lockWaitMillis)),
+                acquired -> acquired ? lock.unlock(ownerId) : Mono.empty());
+    }
+
+    private Mono<Void> publish(Long id) { // 캐시 listener가 Redis를 blocking으로 호출할 수 있으므로 I/O 스레드 밖에서 발행
+        return Mono.<Void>fromRunnable(() -> eventPublisher.publishEvent(StockChangedEvent.unknown(id)))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private void release(Long id, AtomicInteger count) {
+        if (count.decrementAndGet() == 0) {
+            inFlight.remove(id, count);
+        }
+    }
+
+}
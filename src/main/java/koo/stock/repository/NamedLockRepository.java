@@ -0,0 +1,179 @@
+package koo.stock.repository;
+
+import koo.stock.lock.LockAcquisitionTimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * MySQL Named Lock (get_lock / release_lock)
+ * 재고 갱신용 커넥션 풀과 분리된 namedLockDataSource의 커넥션에서 lock을 잡아, 요청 하나가 같은 풀의 커넥션을 2개씩 점유하지 않도록 한다.
+ * 같은 key로 이 서버에 연속해서 들어온 요청은 lock을 잡은 세션(커넥션)을 그대로 넘겨받아 release_lock / get_lock 왕복을 생략한다.
+ * 다른 서버가 굶지 않도록 넘겨줄 수 있는 횟수는 max-handoffs로 제한한다.
+ */
+@Component
+public class NamedLockRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(NamedLockRepository.class);
+
+    private final DataSource dataSource;
+    private final int waitSeconds;
+    private final int maxHandoffs;
+    private final Map<Long, LockSession> sessions = new ConcurrentHashMap<>();
+
+    public NamedLockRepository(@Qualifier("namedLockDataSource") DataSource dataSource,
+                               @Value("${stock.named-lock.wait-seconds:30}") int waitSeconds,
+                               @Value("${stock.named-lock.max-handoffs:32}") int maxHandoffs) {
+        this.dataSource = dataSource;
+        this.waitSeconds = waitSeconds;
+        this.maxHandoffs = maxHandoffs;
+    }
+
+    public void lock(Long key) {
+        LockSession session = sessions.compute(key, (k, s) -> {
+            LockSession current = s == null ? new LockSession() : s;
+            current.refs.incrementAndGet(); // lock을 쥐고 있거나 기다리는 요청 수
+
+            return current;
+        });
+
+        session.local.lock(); // 같은 key의 요청은 이 서버 안에서 먼저 줄을 선다.
+        try {
+            if (session.connection == null) {
+                session.connection = open(key);
+            }
+        } catch (RuntimeException e) {
+            session.local.unlock();
+            dereference(key);
+            throw e;
+        }
+    }
+
+    public void unlock(Long key) {
+        LockSession session = sessions.get(key);
+
+        try {
+            if (session.refs.get() > 1 && session.handoffs < maxHandoffs) { // 기다리는 요청이 있으면 lock을 쥔 채로 넘겨준다.
+                session.handoffs++;
+                return;
+            }
+
+            close(key, session.connection);
+            session.connection = null;
+            session.handoffs = 0;
+        } finally {
+            session.local.unlock();
+            dereference(key);
+        }
+    }
+
+    /**
+     * 여러 key의 lock을 하나의 세션에서 순서대로 잡은 뒤 action을 실행 (key 순서는 호출하는 쪽에서 정렬해 넘긴다)
+     */
+    public void executeWithLocks(Collection<Long> keys, Runnable action) {
+        List<Long> locked = new ArrayList<>();
+
+        try (Connection connection = dataSource.getConnection()) {
+            try {
+                for (Long key : keys) {
+                    if (!getLock(connection, key)) {
+                        throw new LockAcquisitionTimeoutException(key, waitSeconds * 1000L);
+                    }
+                    locked.add(key);
+                }
+
+                action.run();
+            } finally {
+                for (int i = locked.size() - 1; i >= 0; i--) {
+                    releaseLock(connection, locked.get(i));
+                }
+            }
+        } catch (SQLException e) {
+            throw new IllegalStateException("named lock 커넥션 오류", e);
+        }
+    }
+
+    private Connection open(Long key) {
+        try {
+            Connection connection = dataSource.getConnection();
+
+            if (!getLock(connection, key)) {
+                connection.close();
+                throw new LockAcquisitionTimeoutException(key, waitSeconds * 1000L);
+            }
+
+            return connection;
+        } catch (SQLException e) {
+            throw new IllegalStateException("named lock 획득 중 오류 key=" + key, e);
+        }
+    }
+
+    private void close(Long key, Connection connection) {
+        try (connection) {
+            releaseLock(connection, key);
+        } catch (SQLException e) {
+            // 커넥션이 닫히면 MySQL이 세션의 named lock을 함께 해제한다.
+            log.warn("named lock 커넥션 반납 중 오류 key={}", key, e);
+        }
+    }
+
+    private boolean getLock(Connection connection, Long key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select get_lock(?, ?)")) {
+            statement.setString(1, generateKey(key));
+            statement.setInt(2, waitSeconds);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+
+                return resultSet.getInt(1) == 1; // 1: 획득, 0: 대기시간 초과, NULL: 오류
+            }
+        }
+    }
+
+    private void releaseLock(Connection connection, Long key) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("select release_lock(?)")) {
+            statement.setString(1, generateKey(key));
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+
+                if (resultSet.getInt(1) != 1) { // 0: 다른 세션의 lock, NULL: 존재하지 않는 lock
+                    log.warn("named lock 해제 실패 key={}", key);
+                }
+            }
+        }
+    }
+
+    private void dereference(Long key) {
+        sessions.computeIfPresent(key, (k, s) -> s.refs.decrementAndGet() == 0 ? null : s);
+    }
+
+    private String generateKey(Long key) {
+        return key.toString();
+    }
+
+    private static class LockSession {
+
+        private final ReentrantLock local = new ReentrantLock(true);
+        private final AtomicInteger refs = new AtomicInteger();
+        private Connection connection; // named lock을 쥐고 있는 세션 (local lock을 쥔 스레드만 접근)
+        private int handoffs;
+
+    }
+
+}
@@ -1,32 +1,83 @@
 package koo.stock.repository;
 
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
-import java.time.Duration;
+import java.util.List;
 
 @Component
 public class RedisLockRepository {
 
+    public static final String RELEASE_CHANNEL = "lock:released"; // lock 해제를 대기중인 스레드에게 알리는 채널
+
+    // lock 설정에 성공하면 key별로 단조 증가하는 fencing token을 발급 (실패하면 0)
+    private static final RedisScript<Long> LOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then
+                return redis.call('incr', KEYS[2])
+            end
+            return 0
+            """, Long.class);
+
+    // 자신이 건 lock일 때만 삭제하고 해제 알림을 보낸다.
+    private static final RedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                redis.call('del', KEYS[1])
+                redis.call('publish', ARGV[2], ARGV[3])
+                return 1
+            end
+            return 0
+            """, Long.class);
+
+    // 자신이 건 lock일 때만 유지 시간을 연장
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('pexpire', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+
     private final RedisTemplate<String, String> redisTemplate;
 
     public RedisLockRepository(RedisTemplate<String, String> redisTemplate) {
         this.redisTemplate = redisTemplate;
     }
 
-    public Boolean lock(Long key) { // 로직을 실행 전 공유자원에 lock 메서드를 통해 락 설정
-        return redisTemplate
-                .opsForValue()
-                .setIfAbsent(generateKey(key), "lock", Duration.ofMillis(3_000)); // key는 Stock의 id, value는 문자열 lock
+    /**
+     * 로직을 실행 전 공유자원에 lock 메서드를 통해 락 설정
+     * value에는 고정된 문자열 대신 lock을 건 주체의 token을 저장해 다른 주체가 해제하지 못하도록 한다.
+     *
+     * @return 획득에 성공하면 fencing token, 실패하면 0
+     */
+    public Long lock(Long key, String ownerToken, long leaseMillis) {
+        return redisTemplate.execute(LOCK_SCRIPT,
+                List.of(generateKey(key), generateFencingKey(key)),
+                ownerToken, String.valueOf(leaseMillis));
+    }
+
+    public Boolean unlock(Long key, String ownerToken) { // 로직이 끝나면 unlock 메서드를 통해 락 해제 (compare-and-delete)
+        Long deleted = redisTemplate.execute(UNLOCK_SCRIPT,
+                List.of(generateKey(key)),
+                ownerToken, RELEASE_CHANNEL, generateKey(key));
+
+        return Long.valueOf(1).equals(deleted);
     }
 
-    public Boolean unlock(Long key) { // 로직이 끝나면 unlock 메서드를 통해 락 해제
-        return redisTemplate
-                .delete(generateKey(key));
+    public Boolean renew(Long key, String ownerToken, long leaseMillis) {
+        Long renewed = redisTemplate.execute(RENEW_SCRIPT,
+                List.of(generateKey(key)),
+                ownerToken, String.valueOf(leaseMillis));
+
+        return Long.valueOf(1).equals(renewed);
     }
 
     private String generateKey(Long key) {
         return key.toString();
     }
 
+    private String generateFencingKey(Long key) {
+        return "fence:" + key;
+    }
+
 }
@@ -0,0 +1,303 @@
+package koo.stock.repository;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Component
+public class RedisStockRepository { // 재고 수량 자체를 Redis에 두고 Lua script로 원자적으로 감소시킨다.
+
+    public static final long NOT_LOADED = -2L;
+    public static final long NOT_ENOUGH = -1L;
+    private static final long INVALID_QUANTITY = -3L; // 감소 수량이 0 이하 (decrby에 음수가 들어가면 증가가 된다)
+
+    private static final String DIRTY_KEY = "stock:dirty"; // DB에 반영되지 않은 감소량이 있는 id 목록
+    private static final String COUNTERS_KEY = "stock:counters"; // Redis에 수량이 올라가 있는 id 목록
+    private static final Duration FLUSH_LOCK_LEASE = Duration.ofSeconds(30); // flush 도중 서버가 죽어도 lock이 남지 않도록
+
+    // 재고 확인 -> 감소 -> 미반영 감소량 누적을 한번의 왕복으로 처리
+    private static final RedisScript<Long> DECREASE_SCRIPT = new DefaultRedisScript<>("""
+            local quantity = tonumber(ARGV[1])
+            if quantity <= 0 then return -3 end
+            local current = redis.call('get', KEYS[1])
+            if not current then return -2 end
+            current = tonumber(current)
+            if current < quantity then return -1 end
+            redis.call('decrby', KEYS[1], quantity)
+            redis.call('incrby', KEYS[2], quantity)
+            redis.call('sadd', KEYS[3], ARGV[2])
+            return current - quantity
+            """, Long.class);
+
+    // 여러 Stock을 모두 확인한 뒤에만 감소 (KEYS: 수량 key n개, 감소량 key n개, dirty key / ARGV: 수량 n개, id n개)
+    private static final RedisScript<Long> DECREASE_ALL_SCRIPT = new DefaultRedisScript<>("""
+            local n = (#KEYS - 1) / 2
+            for i = 1, n do
+                if tonumber(ARGV[i]) <= 0 then return -3 end
+            end
+            for i = 1, n do
+                local current = redis.call('get', KEYS[i])
+                if not current then return -2 end
+                if tonumber(current) < tonumber(ARGV[i]) then return -1 end
+            end
+            for i = 1, n do
+                redis.call('decrby', KEYS[i], ARGV[i])
+                redis.call('incrby', KEYS[n + i], ARGV[i])
+                redis.call('sadd', KEYS[2 * n + 1], ARGV[n + i])
+            end
+            return 0
+            """, Long.class);
+
+    // 예약: 수량만 줄이고 감소량은 쌓지 않는다. (DB 재고는 예약을 확정할 때 줄어든다)
+    private static final RedisScript<Long> RESERVE_SCRIPT = new DefaultRedisScript<>("""
+            local current = redis.call('get', KEYS[1])
+            if not current then return -2 end
+            current = tonumber(current)
+            local quantity = tonumber(ARGV[1])
+            if current < quantity then return -1 end
+            return redis.call('decrby', KEYS[1], quantity)
+            """, Long.class);
+
+    // Redis에 수량이 올라가 있을 때만 증가 (없으면 다음 감소 때 DB에서 올린다)
+    private static final RedisScript<Long> INCREASE_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('exists', KEYS[1]) == 0 then return -2 end
+            return redis.call('incrby', KEYS[1], ARGV[1])
+            """, Long.class);
+
+    // DB에 반영한 만큼만 누적된 감소량에서 뺀다. (반영하는 동안 들어온 감소량은 남아 다음 flush에 반영된다)
+    private static final RedisScript<Long> SETTLE_SCRIPT = new DefaultRedisScript<>("""
+            local left = redis.call('decrby', KEYS[1], ARGV[1])
+            if left <= 0 then
+                redis.call('del', KEYS[1])
+                redis.call('srem', KEYS[2], ARGV[2])
+            end
+            return left
+            """, Long.class);
+
+    // 수량을 직접 지정한 경우: 지정 시점(ARGV[2])까지의 감소량은 버리고, 그 이후의 감소량만 남겨 새 수량에서 뺀다.
+    private static final RedisScript<Long> RESET_SCRIPT = new DefaultRedisScript<>("""
+            local since = tonumber(redis.call('get', KEYS[2]) or '0') - tonumber(ARGV[2])
+            if since > 0 then
+                redis.call('set', KEYS[2], since)
+            else
+                since = 0
+                redis.call('del', KEYS[2])
+                redis.call('srem', KEYS[3], ARGV[3])
+            end
+            local quantity = tonumber(ARGV[1]) - since
+            redis.call('set', KEYS[1], quantity)
+            return quantity
+            """, Long.class);
+
+    // 자신이 건 flush lock일 때만 삭제
+    private static final RedisScript<Long> UNLOCK_FLUSH_SCRIPT = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('del', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    // DB 수량에서 아직 반영되지 않은 감소량을 뺀 값으로 Redis 수량을 맞춘다.
+    private static final RedisScript<Long> RECONCILE_SCRIPT = new DefaultRedisScript<>("""
+            local delta = tonumber(redis.call('get', KEYS[2]) or '0')
+            local quantity = tonumber(ARGV[1]) - delta
+            redis.call('set', KEYS[1], quantity)
+            return quantity
+            """, Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisStockRepository(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /**
+     * @return 감소 후 남은 수량, 재고 부족이면 NOT_ENOUGH, Redis에 수량이 없으면 NOT_LOADED
+     */
+    public Long decrease(Long id, Long quantity) {
+        return checkQuantity(redisTemplate.execute(DECREASE_SCRIPT,
+                List.of(quantityKey(id), deltaKey(id), DIRTY_KEY),
+                quantity.toString(), id.toString()));
+    }
+
+    /**
+     * @return 모두 감소하면 0, 하나라도 재고 부족이면 NOT_ENOUGH, Redis에 수량이 없는 Stock이 있으면 NOT_LOADED
+     */
+    public Long decreaseAll(Map<Long, Long> quantities) {
+        List<Long> ids = new ArrayList<>(quantities.keySet());
+        List<String> keys = new ArrayList<>();
+        List<String> args = new ArrayList<>();
+
+        ids.forEach(id -> keys.add(quantityKey(id)));
+        ids.forEach(id -> keys.add(deltaKey(id)));
+        keys.add(DIRTY_KEY);
+        ids.forEach(id -> args.add(quantities.get(id).toString()));
+        ids.forEach(id -> args.add(id.toString()));
+
+        return checkQuantity(redisTemplate.execute(DECREASE_ALL_SCRIPT, keys, args.toArray()));
+    }
+
+    /**
+     * 예약한 수량을 Redis 수량에서 뺀다. (예약을 해제하면 increase로 되돌린다)
+     *
+     * @return 예약 후 남은 수량, 재고 부족이면 NOT_ENOUGH, Redis에 수량이 없으면 NOT_LOADED
+     */
+    public Long reserve(Long id, Long quantity) {
+        return redisTemplate.execute(RESERVE_SCRIPT, List.of(quantityKey(id)), quantity.toString());
+    }
+
+    /**
+     * @return 증가 후 수량, Redis에 수량이 없으면 NOT_LOADED
+     */
+    public Long increase(Long id, Long quantity) {
+        return redisTemplate.execute(INCREASE_SCRIPT, List.of(quantityKey(id)), quantity.toString());
+    }
+
+    public Boolean load(Long id, Long quantity) { // 이미 올라가 있는 값은 덮어쓰지 않는다.
+        redisTemplate.opsForSet().add(COUNTERS_KEY, id.toString());
+
+        return redisTemplate
+                .opsForValue()
+                .setIfAbsent(quantityKey(id), quantity.toString());
+    }
+
+    public Long reconcile(Long id, Long databaseQuantity) {
+        redisTemplate.opsForSet().add(COUNTERS_KEY, id.toString()); // 시작 시 reconcile 대상이 되도록 load와 같이 등록
+
+        return redisTemplate.execute(RECONCILE_SCRIPT,
+                List.of(quantityKey(id), deltaKey(id)),
+                databaseQuantity.toString());
+    }
+
+    public void remove(Long id) { // 수량과 누적 감소량을 함께 지운다.
+        redisTemplate.delete(List.of(quantityKey(id), deltaKey(id)));
+        redisTemplate.opsForSet().remove(COUNTERS_KEY, id.toString());
+        redisTemplate.opsForSet().remove(DIRTY_KEY, id.toString());
+    }
+
+    public Long getQuantity(Long id) {
+        String quantity = redisTemplate.opsForValue().get(quantityKey(id));
+
+        return quantity == null ? null : Long.valueOf(quantity);
+    }
+
+    public Long getDelta(Long id) {
+        String delta = redisTemplate.opsForValue().get(deltaKey(id));
+
+        return delta == null ? 0L : Long.valueOf(delta);
+    }
+
+    /**
+     * ids 중 Redis에 수량이 올라가 있는 id (한번의 MGET)
+     */
+    public List<Long> findLoadedIds(List<Long> ids) {
+        List<String> quantities = redisTemplate.opsForValue().multiGet(ids.stream().map(this::quantityKey).toList());
+        List<Long> loaded = new ArrayList<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            if (quantities != null && quantities.get(i) != null) {
+                loaded.add(ids.get(i));
+            }
+        }
+
+        return loaded;
+    }
+
+    /**
+     * id별 누적 감소량 (한번의 MGET, 없으면 0)
+     */
+    public Map<Long, Long> getDeltas(List<Long> ids) {
+        List<String> deltas = redisTemplate.opsForValue().multiGet(ids.stream().map(this::deltaKey).toList());
+        Map<Long, Long> result = new HashMap<>();
+
+        for (int i = 0; i < ids.size(); i++) {
+            String delta = deltas == null ? null : deltas.get(i);
+            result.put(ids.get(i), delta == null ? 0L : Long.valueOf(delta));
+        }
+
+        return result;
+    }
+
+    /**
+     * DB에 반영을 마친 감소량만큼 누적된 감소량을 줄인다.
+     *
+     * @return 남은 감소량
+     */
+    public Long settleDelta(Long id, Long applied) {
+        return redisTemplate.execute(SETTLE_SCRIPT,
+                List.of(deltaKey(id), DIRTY_KEY),
+                applied.toString(), id.toString());
+    }
+
+    /**
+     * DB 수량을 직접 지정한 후 Redis 수량을 맞춘다.
+     *
+     * @param baseDelta 수량을 지정할 때 읽은 누적 감소량 (지정한 수량에 이미 포함된 감소량)
+     */
+    public Long reset(Long id, Long databaseQuantity, Long baseDelta) {
+        return redisTemplate.execute(RESET_SCRIPT,
+                List.of(quantityKey(id), deltaKey(id), DIRTY_KEY),
+                databaseQuantity.toString(), baseDelta.toString(), id.toString());
+    }
+
+    /**
+     * 같은 id의 flush, reconcile, 수량 지정이 서버 안팎에서 겹치지 않도록 거는 lock
+     * 감소(Lua script)는 이 lock과 관계없이 계속 처리된다.
+     */
+    public Boolean lockFlush(Long id, String ownerToken) {
+        return redisTemplate.opsForValue()
+                .setIfAbsent(flushLockKey(id), ownerToken, FLUSH_LOCK_LEASE);
+    }
+
+    public void unlockFlush(Long id, String ownerToken) {
+        redisTemplate.execute(UNLOCK_FLUSH_SCRIPT, List.of(flushLockKey(id)), ownerToken);
+    }
+
+    public Set<Long> findDirtyIds() {
+        return toIds(redisTemplate.opsForSet().members(DIRTY_KEY));
+    }
+
+    public Set<Long> findCounterIds() {
+        return toIds(redisTemplate.opsForSet().members(COUNTERS_KEY));
+    }
+
+    private Set<Long> toIds(Set<String> members) {
+        if (members == null) {
+            return Set.of();
+        }
+
+        return members.stream()
+                .map(Long::valueOf)
+                .collect(Collectors.toSet());
+    }
+
+    private Long checkQuantity(Long result) {
+        if (result != null && result == INVALID_QUANTITY) {
+            throw new IllegalArgumentException("감소 수량은 0보다 커야 합니다.");
+        }
+
+        return result;
+    }
+
+    private String quantityKey(Long id) {
+        return "stock:quantity:" + id;
+    }
+
+    private String deltaKey(Long id) {
+        return "stock:delta:" + id;
+    }
+
+    private String flushLockKey(Long id) {
+        return "stock:flush-lock:" + id;
+    }
+
+}
@@ -0,0 +1,47 @@
+package koo.stock.repository;
+
+import koo.stock.domain.StockMovement;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface StockMovementRepository extends JpaRepository<StockMovement, Long> {
+
+    /**
+     * 마지막 snapshot 수량 - 예약 수량 + 아직 반영되지 않은 변경량 (하나의 쿼리로 읽어 snapshot 도중에도 어긋나지 않는다)
+     * Stock이 없으면 null
+     */
+    @Query("""
+            select s.quantity - s.reserved + coalesce((select sum(m.quantity) from StockMovement m
+                                          where m.stockId = s.id and m.snapshotId is null), 0)
+            from Stock s where s.id = :stockId
+            """)
+    Long findBalance(@Param("stockId") Long stockId);
+
+    /**
+     * 반영되지 않은 변경에 snapshotId를 표시 (locking read라서 커밋되지 않은 insert가 있으면 커밋될 때까지 기다린다)
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update StockMovement m set m.snapshotId = :snapshotId where m.stockId = :stockId and m.snapshotId is null")
+    int markSnapshot(@Param("stockId") Long stockId, @Param("snapshotId") String snapshotId);
+
+    @Query("select coalesce(sum(m.quantity), 0) from StockMovement m where m.snapshotId = :snapshotId")
+    Long sumBySnapshotId(@Param("snapshotId") String snapshotId);
+
+    @Query("select distinct m.stockId from StockMovement m where m.snapshotId is null")
+    List<Long> findPendingStockIds();
+
+    List<StockMovement> findAllByStockIdOrderById(Long stockId); // 이력 재생(reconciliation)용
+
+    /**
+     * since 이후 감소량이 많은 순서대로 Stock id (변경량이 음수이므로 합이 작은 순서)
+     */
+    @Query("select m.stockId from StockMovement m where m.quantity < 0 and m.createdAt >= :since group by m.stockId order by sum(m.quantity)")
+    List<Long> findTopSellingStockIds(@Param("since") LocalDateTime since, Pageable pageable);
+
+}
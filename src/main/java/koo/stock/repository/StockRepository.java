@@ -4,8 +4,13 @@ import jakarta.persistence.LockModeType;
 import koo.stock.domain.Stock;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface StockRepository extends JpaRepository<Stock, Long> {
 
@@ -16,6 +21,14 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
     @Query("select s from Stock s where s.id = :id") // Native Query 이용
     Stock findByIdWithPessimisticLock(@Param("id") Long id); // 동시성 이슈 해결을 위해 PessimisticLock 사용
 
+    /**
+     * Pessimistic Lock (여러 건)
+     * 한번의 select ... for update로 id 오름차순 lock을 걸어 주문끼리 서로 다른 순서로 lock을 잡는 데드락을 방지한다.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Stock s where s.id in :ids order by s.id")
+    List<Stock> findAllByIdWithPessimisticLock(@Param("ids") Collection<Long> ids);
+
     /**
      * Optimistic Lock
      */
@@ -23,13 +36,69 @@ public interface StockRepository extends JpaRepository<Stock, Long> {
     @Query("select s from Stock s where s.id = :id")
     Stock findByIdWithOptimisticLock(@Param("id") Long id);
 
+    @Lock(LockModeType.OPTIMISTIC)
+    @Query("select s from Stock s where s.id in :ids order by s.id")
+    List<Stock> findAllByIdWithOptimisticLock(@Param("ids") Collection<Long> ids);
+
     /**
-     * Named Lock
+     * Conditional Update
+     * 조회 없이 한번의 update로 재고 확인과 감소를 함께 수행한다. (반환값은 변경된 row 수, 0이면 재고 부족)
+     * 다른 전략의 Optimistic Lock 검사와 충돌을 감지할 수 있도록 version도 함께 증가시킨다.
+     * 예약된 수량은 제외하고 확인한다. (Stock.decrease와 같은 기준)
      */
-    @Query(value = "select get_lock(:key, 3000)", nativeQuery = true)
-    void getLock(@Param("key") String key);
+    @Modifying(clearAutomatically = true)
+    @Query("update Stock s set s.quantity = s.quantity - :quantity, s.version = s.version + 1 where s.id = :id and s.quantity - s.reserved >= :quantity")
+    int decreaseIfEnough(@Param("id") Long id, @Param("quantity") Long quantity);
 
-    @Query(value = "select release_lock(:key)", nativeQuery = true)
-    void releaseLock(@Param("key") String key);
+    /**
+     * Fencing Token
+     * lease가 만료된 lock 소유자의 쓰기를 막기 위해, 저장된 token보다 작은 token으로는 갱신하지 않는다.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update Stock s set s.quantity = s.quantity - :quantity, s.fencingToken = :fencingToken, s.version = s.version + 1 " +
+            "where s.id = :id and s.quantity - s.reserved >= :quantity and (s.fencingToken is null or s.fencingToken <= :fencingToken)")
+    int decreaseWithFencingToken(@Param("id") Long id, @Param("quantity") Long quantity, @Param("fencingToken") Long fencingToken);
+
+    /**
+     * 판매 가능한 수량 (예약된 수량을 빼고, shard로 나누어진 Stock은 shard 수량을 더한다 / Stock이 없으면 null)
+     * split 이후 Stock row에는 예약된 수량만 남으므로 row만 읽으면 0이 되는 것을 한번의 조회로 막는다.
+     */
+    @Query("""
+            select s.quantity - s.reserved + coalesce((select sum(h.quantity) from StockShard h where h.stockId = s.id), 0)
+            from Stock s where s.id = :id
+            """)
+    Long findAvailableQuantity(@Param("id") Long id);
+
+    /**
+     * Reservation
+     * 판매 가능한 수량(quantity - reserved) 안에서만 예약 수량을 늘린다. (반환값이 0이면 재고 부족이거나 존재하지 않는 Stock)
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Stock s set s.reserved = s.reserved + :quantity, s.version = s.version + 1 where s.id = :id and s.quantity - s.reserved >= :quantity")
+    int reserveIfAvailable(@Param("id") Long id, @Param("quantity") Long quantity);
+
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Stock s set s.reserved = s.reserved - :quantity, s.version = s.version + 1 where s.id = :id and s.reserved >= :quantity")
+    int releaseReserved(@Param("id") Long id, @Param("quantity") Long quantity);
+
+    /**
+     * 예약 확정: 예약 수량과 재고를 함께 줄인다. (판매 가능한 수량은 예약할 때 이미 줄었으므로 그대로다)
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Stock s set s.quantity = s.quantity - :quantity, s.reserved = s.reserved - :quantity, s.version = s.version + 1 " +
+            "where s.id = :id and s.reserved >= :quantity and s.quantity >= :quantity")
+    int decreaseReserved(@Param("id") Long id, @Param("quantity") Long quantity);
+
+    /**
+     * Write-behind
+     * Redis에서 이미 재고 검증을 마친 감소량을 DB에 반영한다.
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update Stock s set s.quantity = s.quantity - :delta, s.version = s.version + 1 where s.id = :id")
+    int applyDelta(@Param("id") Long id, @Param("delta") Long delta);
 
 }
@@ -0,0 +1,39 @@
+package koo.stock.repository;
+
+import jakarta.persistence.LockModeType;
+import koo.stock.domain.StockShard;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+public interface StockShardRepository extends JpaRepository<StockShard, Long> {
+
+    /**
+     * 하나의 shard에서만 조건부로 감소 (반환값이 0이면 해당 shard의 재고 부족)
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update StockShard s set s.quantity = s.quantity - :quantity where s.stockId = :stockId and s.shardNo = :shardNo and s.quantity >= :quantity")
+    int decreaseIfEnough(@Param("stockId") Long stockId, @Param("shardNo") Integer shardNo, @Param("quantity") Long quantity);
+
+    /**
+     * 여러 shard에 걸친 감소와 재분배를 위해 shard 번호 순서대로 lock을 건다. (순서를 고정해 데드락 방지)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from StockShard s where s.stockId = :stockId order by s.shardNo")
+    List<StockShard> findAllByStockIdWithPessimisticLock(@Param("stockId") Long stockId);
+
+    @Query("select coalesce(sum(s.quantity), 0) from StockShard s where s.stockId = :stockId")
+    Long sumQuantity(@Param("stockId") Long stockId);
+
+    @Query("select distinct s.stockId from StockShard s")
+    List<Long> findShardedStockIds();
+
+    int countByStockId(Long stockId);
+
+}
@@ -0,0 +1,42 @@
+package koo.stock.reservation;
+
+import java.util.UUID;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+public class Reservation implements Delayed { // 결제가 끝날 때까지 일정 시간 동안 재고를 잡아두는 예약
+
+    private final String id = UUID.randomUUID().toString();
+    private final Long stockId;
+    private final Long quantity;
+    private final long expiresAtNanos;
+
+    public Reservation(Long stockId, Long quantity, long ttlMillis) {
+        this.stockId = stockId;
+        this.quantity = quantity;
+        this.expiresAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getStockId() {
+        return stockId;
+    }
+
+    public Long getQuantity() {
+        return quantity;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+        return unit.convert(expiresAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+        return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+
+}
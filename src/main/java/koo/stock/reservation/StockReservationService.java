@@ -0,0 +1,175 @@
+package koo.stock.reservation;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import koo.stock.cache.StockQuantityCache;
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.Stock;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.RedisStockRepository;
+import koo.stock.repository.StockRepository;
+import koo.stock.service.JournalStockService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 재고 예약 (hold -> confirm / release)
+ * 예약 수량은 Stock.reserved에 조건부 update로 기록하고, 모든 감소 방식은 quantity - reserved(판매 가능한 수량) 안에서만 감소한다.
+ * 결제가 진행되는 동안 row lock을 잡고 있지 않아도 되며, 서버가 여러 대여도 예약된 수량을 다른 주문이나 접수가 팔 수 없다.
+ * row 밖에 판매 가능한 수량을 따로 들고 있는 방식(Redis counter, journal 잔량)은 그 수량에서도 함께 빼고 해제할 때 되돌린다.
+ * (그 수량이 처음 올라가는 순간과 겹치면 예약이 두번 빠질 수는 있지만, 초과 판매 대신 덜 파는 쪽이며 다음 reconcile에서 맞춰진다)
+ * 실제 재고 감소는 confirm 시점에 예약 수량과 재고를 함께 줄이는 update 한번으로 수행하고, 만료된 예약은 DelayQueue를 통해 자동으로 해제된다.
+ */
+@Service
+public class StockReservationService {
+
+    private final StockRepository stockRepository;
+    private final RedisStockRepository redisStockRepository;
+    private final JournalStockService journalStockService;
+    private final StockQuantityCache stockQuantityCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long defaultTtlMillis;
+    private final Map<String, Reservation> holds = new ConcurrentHashMap<>();
+    private final DelayQueue<Reservation> expirations = new DelayQueue<>();
+    private final ExecutorService expirationWorker = Executors.newSingleThreadExecutor();
+
+    public StockReservationService(StockRepository stockRepository,
+                                   RedisStockRepository redisStockRepository,
+                                   JournalStockService journalStockService,
+                                   StockQuantityCache stockQuantityCache,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${stock.reservation.ttl-millis:600000}") long defaultTtlMillis) {
+        this.stockRepository = stockRepository;
+        this.redisStockRepository = redisStockRepository;
+        this.journalStockService = journalStockService;
+        this.stockQuantityCache = stockQuantityCache;
+        this.eventPublisher = eventPublisher;
+        this.defaultTtlMillis = defaultTtlMillis;
+    }
+
+    public Reservation hold(Long stockId, Long quantity) {
+        return hold(stockId, quantity, defaultTtlMillis);
+    }
+
+    public Reservation hold(Long stockId, Long quantity, long ttlMillis) {
+        if (quantity == null || quantity <= 0) { // 음수 예약은 예약 수량을 줄여 다른 예약이 재고를 초과하게 만든다.
+            throw new IllegalArgumentException("예약 수량은 0보다 커야 합니다.");
+        }
+
+        if (stockRepository.reserveIfAvailable(stockId, quantity) == 0) { // 판매 가능한 수량 확인과 예약을 update 한번으로 수행
+            throw new OutOfStockException();
+        }
+
+        try {
+            reserveOutsideRow(stockId, quantity);
+        } catch (RuntimeException e) {
+            stockRepository.releaseReserved(stockId, quantity);
+            throw e;
+        }
+
+        publishChanged(stockId);
+
+        Reservation reservation = new Reservation(stockId, quantity, ttlMillis);
+        holds.put(reservation.getId(), reservation);
+        expirations.put(reservation);
+
+        return reservation;
+    }
+
+    public void confirm(String reservationId) {
+        Reservation reservation = take(reservationId);
+
+        // 판매 가능한 수량은 예약할 때 이미 줄었으므로 예약 수량과 재고만 함께 줄인다.
+        if (stockRepository.decreaseReserved(reservation.getStockId(), reservation.getQuantity()) == 0) { // 실사 등으로 재고가 예약 수량보다 줄어든 경우
+            unreserve(reservation);
+            throw new OutOfStockException();
+        }
+    }
+
+    public void release(String reservationId) {
+        unreserve(take(reservationId));
+    }
+
+    public long getAvailableQuantity(Long stockId) { // 캐시는 예약된 수량을 뺀 수량을 가지고 있다.
+        return stockQuantityCache.getQuantity(stockId);
+    }
+
+    public long getReservedQuantity(Long stockId) {
+        return stockRepository.findById(stockId).map(Stock::getReserved).orElse(0L);
+    }
+
+    @PostConstruct
+    public void startExpiration() {
+        expirationWorker.execute(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Reservation expired = expirations.take(); // 만료 시각이 된 예약만 꺼내진다.
+
+                    if (holds.remove(expired.getId(), expired)) { // 이미 confirm/release 된 예약은 무시
+                        unreserve(expired);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    @PreDestroy
+    public void stopExpiration() {
+        expirationWorker.shutdownNow();
+    }
+
+    private Reservation take(String reservationId) {
+        Reservation reservation = holds.remove(reservationId);
+
+        if (reservation == null) {
+            throw new IllegalStateException("만료되었거나 존재하지 않는 예약입니다. id=" + reservationId);
+        }
+
+        expirations.remove(reservation);
+
+        return reservation;
+    }
+
+    private void unreserve(Reservation reservation) {
+        Long stockId = reservation.getStockId();
+        Long quantity = reservation.getQuantity();
+
+        // 예약과 반대 순서 (row 밖의 수량을 먼저 되돌려, 그 사이 row에서 처음 올라간 수량에 해제가 두번 더해지지 않도록 한다)
+        journalStockService.release(stockId, quantity);
+        redisStockRepository.increase(stockId, quantity); // Redis에 수량이 없으면 아무것도 하지 않는다.
+        stockRepository.releaseReserved(stockId, quantity);
+
+        publishChanged(stockId);
+    }
+
+    private void reserveOutsideRow(Long stockId, Long quantity) { // row 밖에 판매 가능한 수량을 들고 있으면 그 수량에서도 뺀다.
+        journalStockService.reserve(stockId, quantity);
+
+        if (redisStockRepository.reserve(stockId, quantity) == RedisStockRepository.NOT_ENOUGH) { // Redis에서 먼저 팔린 경우
+            journalStockService.release(stockId, quantity);
+            throw new OutOfStockException();
+        }
+    }
+
+    private void publishChanged(Long stockId) { // 판매 가능한 수량을 들고 있는 곳(Redis counter -> journal 잔량 -> DB) 기준으로 알린다.
+        Long counted = redisStockRepository.getQuantity(stockId);
+
+        if (counted != null) {
+            eventPublisher.publishEvent(new StockChangedEvent(stockId, counted));
+        } else if (journalStockService.isTracking(stockId)) {
+            eventPublisher.publishEvent(new StockChangedEvent(stockId, journalStockService.getQuantity(stockId)));
+        } else {
+            stockRepository.findById(stockId).map(StockChangedEvent::of).ifPresent(eventPublisher::publishEvent);
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package koo.stock.retry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class ContentionTracker { // Stock id별 Optimistic Lock 충돌 비율을 지수 이동 평균(EWMA)으로 추적
+
+    private final double alpha;
+    private final double hotThreshold;
+    private final Map<Long, AtomicLong> conflictRates = new ConcurrentHashMap<>(); // double 값을 bit로 담아 CAS로 갱신
+
+    public ContentionTracker(@Value("${stock.optimistic.conflict-rate-alpha:0.1}") double alpha,
+                             @Value("${stock.optimistic.hot-conflict-rate:0.5}") double hotThreshold) {
+        this.alpha = alpha;
+        this.hotThreshold = hotThreshold;
+    }
+
+    public void record(Long id, boolean conflicted) {
+        AtomicLong rate = conflictRates.computeIfAbsent(id, k -> new AtomicLong(Double.doubleToLongBits(0)));
+        double sample = conflicted ? 1 : 0;
+
+        rate.getAndUpdate(bits -> Double.doubleToLongBits(Double.longBitsToDouble(bits) * (1 - alpha) + sample * alpha));
+    }
+
+    public double conflictRate(Long id) {
+        AtomicLong rate = conflictRates.get(id);
+
+        return rate == null ? 0 : Double.longBitsToDouble(rate.get());
+    }
+
+    public boolean isHot(Long id) {
+        return conflictRate(id) >= hotThreshold;
+    }
+
+    // Pessimistic Lock으로 우회한 id는 더 이상 충돌이 기록되지 않으므로, 주기적으로 비율을 절반씩 줄여 다시 Optimistic Lock을 시도하게 한다.
+    // 충돌이 거의 없어진 id는 지워 추적 대상이 무한히 늘어나지 않도록 한다.
+    @Scheduled(fixedDelayString = "${stock.optimistic.decay-interval-millis:1000}")
+    public void decay() {
+        conflictRates.values().forEach(rate -> rate.getAndUpdate(bits -> Double.doubleToLongBits(Double.longBitsToDouble(bits) / 2)));
+        conflictRates.values().removeIf(rate -> Double.longBitsToDouble(rate.get()) < hotThreshold / 10);
+    }
+
+}
@@ -0,0 +1,35 @@
+package koo.stock.retry;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+@Component
+public class ExponentialBackoffRetryPolicy implements RetryPolicy { // 실패할수록 대기시간 상한을 2배씩 늘리고 그 안에서 무작위로 기다린다. (full jitter)
+
+    private final int maxAttempts;
+    private final long baseBackoffMillis;
+    private final long maxBackoffMillis;
+
+    public ExponentialBackoffRetryPolicy(@Value("${stock.optimistic.max-attempts:5}") int maxAttempts,
+                                         @Value("${stock.optimistic.base-backoff-millis:5}") long baseBackoffMillis,
+                                         @Value("${stock.optimistic.max-backoff-millis:100}") long maxBackoffMillis) {
+        this.maxAttempts = maxAttempts;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    @Override
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    @Override
+    public long backoffMillis(int attempt) {
+        long cap = Math.min(maxBackoffMillis, baseBackoffMillis << Math.min(attempt, 16));
+
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+
+}
@@ -0,0 +1,15 @@
+package koo.stock.retry;
+
+public interface RetryPolicy {
+
+    /**
+     * 한 요청에서 시도할 수 있는 최대 횟수 (첫 시도 포함)
+     */
+    int maxAttempts();
+
+    /**
+     * attempt번째(0부터) 실패 이후 다음 시도까지 기다릴 시간
+     */
+    long backoffMillis(int attempt);
+
+}
@@ -0,0 +1,34 @@
+package koo.stock.scheduler;
+
+import koo.stock.repository.StockMovementRepository;
+import koo.stock.service.JournalStockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StockJournalSnapshotter { // StockMovement에 쌓인 변경량을 주기적으로 Stock 수량에 반영
+
+    private static final Logger log = LoggerFactory.getLogger(StockJournalSnapshotter.class);
+
+    private final StockMovementRepository stockMovementRepository;
+    private final JournalStockService journalStockService;
+
+    public StockJournalSnapshotter(StockMovementRepository stockMovementRepository, JournalStockService journalStockService) {
+        this.stockMovementRepository = stockMovementRepository;
+        this.journalStockService = journalStockService;
+    }
+
+    @Scheduled(fixedDelayString = "${stock.journal.snapshot-interval-millis:1000}")
+    public void snapshot() {
+        for (Long id : stockMovementRepository.findPendingStockIds()) {
+            try {
+                journalStockService.snapshot(id);
+            } catch (RuntimeException e) {
+                log.warn("재고 변경 이력 snapshot 실패 id={}", id, e); // 표시되지 않은 이력은 다음 주기에 다시 반영된다.
+            }
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package koo.stock.scheduler;
+
+import koo.stock.repository.StockShardRepository;
+import koo.stock.service.ShardedStockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StockShardRebalancer { // 주기적으로 shard 사이의 수량 편차를 해소
+
+    private static final Logger log = LoggerFactory.getLogger(StockShardRebalancer.class);
+
+    private final StockShardRepository stockShardRepository;
+    private final ShardedStockService shardedStockService;
+
+    public StockShardRebalancer(StockShardRepository stockShardRepository, ShardedStockService shardedStockService) {
+        this.stockShardRepository = stockShardRepository;
+        this.shardedStockService = shardedStockService;
+    }
+
+    @Scheduled(fixedDelayString = "${stock.shard.rebalance-interval-millis:5000}")
+    public void rebalance() {
+        for (Long stockId : stockShardRepository.findShardedStockIds()) {
+            try {
+                shardedStockService.rebalance(stockId);
+            } catch (RuntimeException e) {
+                log.warn("shard 재분배 실패 stockId={}", stockId, e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,92 @@
+package koo.stock.scheduler;
+
+import koo.stock.domain.Stock;
+import koo.stock.repository.RedisStockRepository;
+import koo.stock.repository.StockRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Redis에 누적된 감소량을 주기적으로 DB(Stock)에 반영
+ * 감소량은 DB에 commit한 뒤에야 반영한 만큼만 Redis에서 빼므로, 도중에 실패하거나 서버가 죽어도 감소량이 사라지지 않는다.
+ * (commit 후 Redis에서 빼기 전에 죽으면 다음 flush에서 한번 더 반영되어 DB 수량이 실제보다 적어질 수는 있다. 초과 판매 대신 덜 파는 쪽을 택한다)
+ * 같은 id의 flush와 reconcile은 Redis의 flush lock으로 서버 안팎에서 하나씩만 실행된다.
+ */
+@Component
+public class StockWriteBehindFlusher {
+
+    private static final Logger log = LoggerFactory.getLogger(StockWriteBehindFlusher.class);
+
+    private final RedisStockRepository redisStockRepository;
+    private final StockRepository stockRepository;
+
+    public StockWriteBehindFlusher(RedisStockRepository redisStockRepository, StockRepository stockRepository) {
+        this.redisStockRepository = redisStockRepository;
+        this.stockRepository = stockRepository;
+    }
+
+    @Scheduled(fixedDelayString = "${stock.redis-counter.flush-interval-millis:1000}")
+    public void flush() {
+        for (Long id : redisStockRepository.findDirtyIds()) {
+            String ownerToken = UUID.randomUUID().toString();
+
+            if (!Boolean.TRUE.equals(redisStockRepository.lockFlush(id, ownerToken))) {
+                continue; // 다른 서버(또는 스레드)가 반영중이면 다음 주기에 다시 확인
+            }
+
+            try {
+                flush(id);
+            } finally {
+                redisStockRepository.unlockFlush(id, ownerToken);
+            }
+        }
+    }
+
+    // 시작 시 남아있는 감소량을 먼저 DB에 반영한 뒤 Redis 수량을 DB 기준으로 다시 맞춘다.
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcile() {
+        flush();
+
+        for (Long id : redisStockRepository.findCounterIds()) {
+            String ownerToken = UUID.randomUUID().toString();
+
+            if (!Boolean.TRUE.equals(redisStockRepository.lockFlush(id, ownerToken))) {
+                continue; // 반영중인 id는 DB 수량과 감소량이 어긋나 있으므로 건너뛴다.
+            }
+
+            try {
+                stockRepository.findById(id)
+                        .map(Stock::getAvailableQuantity) // Redis 수량은 예약된 수량을 뺀 판매 가능한 수량
+                        .ifPresentOrElse(quantity -> redisStockRepository.reconcile(id, quantity),
+                                () -> redisStockRepository.remove(id)); // 삭제된 Stock의 수량이 같은 id로 다시 만들어진 Stock에 남지 않도록
+            } finally {
+                redisStockRepository.unlockFlush(id, ownerToken);
+            }
+        }
+    }
+
+    private void flush(Long id) {
+        Long delta = redisStockRepository.getDelta(id);
+
+        if (delta <= 0) {
+            redisStockRepository.settleDelta(id, 0L); // dirty 목록만 정리
+            return;
+        }
+
+        try {
+            stockRepository.applyDelta(id, delta); // id별로 누적된 감소량을 한번의 update로 반영
+        } catch (RuntimeException e) {
+            log.warn("재고 감소량 DB 반영 실패 id={}, delta={}", id, delta, e); // Redis에 그대로 남아 다음 flush에서 다시 시도
+            return;
+        }
+
+        redisStockRepository.settleDelta(id, delta);
+    }
+
+}
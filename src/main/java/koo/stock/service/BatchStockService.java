@@ -0,0 +1,49 @@
+package koo.stock.service;
+
+import koo.stock.domain.Stock;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.StockRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+public class BatchStockService {
+
+    private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BatchStockService(StockRepository stockRepository, ApplicationEventPublisher eventPublisher) {
+        this.stockRepository = stockRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // 같은 Stock에 대한 여러 요청을 한번의 row lock, 한번의 update로 처리
+    // 요청 순서대로 재고가 남아있는 만큼만 반영하고 각 요청의 반영 여부를 반환한다.
+    @Transactional
+    public List<Boolean> decreaseBatch(Long id, List<Long> quantities) {
+        Stock stock = stockRepository.findByIdWithPessimisticLock(id);
+        List<Boolean> results = new ArrayList<>(quantities.size());
+
+        for (Long quantity : quantities) {
+            if (stock == null || stock.getAvailableQuantity() < quantity) { // Stock.decrease의 0개 미만 불가 규칙을 요청 단위로 적용
+                results.add(false);
+                continue;
+            }
+
+            stock.decrease(quantity);
+            results.add(true);
+        }
+
+        if (stock != null && results.contains(true)) {
+            stockRepository.saveAndFlush(stock); // 이벤트에 증가된 version이 실리도록 commit 전에 반영
+            eventPublisher.publishEvent(StockChangedEvent.of(stock));
+        }
+
+        return results;
+    }
+
+}
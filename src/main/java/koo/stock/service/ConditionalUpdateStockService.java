@@ -0,0 +1,51 @@
+package koo.stock.service;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.metrics.StockMetrics;
+import koo.stock.repository.StockRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class ConditionalUpdateStockService {
+
+    private static final String STRATEGY = "conditional";
+
+    private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockMetrics stockMetrics;
+
+    public ConditionalUpdateStockService(StockRepository stockRepository, ApplicationEventPublisher eventPublisher, StockMetrics stockMetrics) {
+        this.stockRepository = stockRepository;
+        this.eventPublisher = eventPublisher;
+        this.stockMetrics = stockMetrics;
+    }
+
+    // 조회 -> 감소 -> 저장 대신 조건부 update 한번으로 처리 (DB 왕복 1회, row lock은 update 순간에만 잡힌다)
+    @Transactional
+    public void decrease(Long id, Long quantity) {
+        stockMetrics.track(STRATEGY, id, () -> {
+            long start = System.nanoTime();
+            int updated = stockRepository.decreaseIfEnough(id, quantity);
+            stockMetrics.recordTransaction(STRATEGY, id, start);
+
+            if (updated == 0) { // 재고가 부족하거나 존재하지 않는 Stock인 경우
+                throw new OutOfStockException();
+            }
+
+            eventPublisher.publishEvent(StockChangedEvent.unknown(id)); // 변경 후 수량을 조회하지 않으므로 캐시를 무효화한다.
+        });
+    }
+
+    // id 오름차순으로 update 해 row lock 순서를 고정하고, 하나라도 실패하면 예외로 전체를 rollback
+    @Transactional
+    public void decreaseAll(Map<Long, Long> quantities) {
+        new TreeMap<>(quantities).forEach(this::decrease);
+    }
+
+}
@@ -0,0 +1,48 @@
+package koo.stock.service;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.Stock;
+import koo.stock.lock.StaleFencingTokenException;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.StockRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class FencedStockService {
+
+    private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public FencedStockService(StockRepository stockRepository, ApplicationEventPublisher eventPublisher) {
+        this.stockRepository = stockRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // lock의 fencing token을 함께 검사하며 재고 감소 (lease 만료 후 뒤늦게 도착한 쓰기는 거절된다)
+    @Transactional
+    public void decrease(Long id, Long quantity, Long fencingToken) {
+        if (stockRepository.decreaseWithFencingToken(id, quantity, fencingToken) == 1) {
+            eventPublisher.publishEvent(StockChangedEvent.unknown(id));
+            return;
+        }
+
+        Stock stock = stockRepository.findById(id).orElseThrow();
+        if (stock.getFencingToken() != null && stock.getFencingToken() > fencingToken) {
+            throw new StaleFencingTokenException(id, fencingToken);
+        }
+
+        throw new OutOfStockException();
+    }
+
+    // 하나의 트랜잭션에서 id 오름차순으로 감소 (하나라도 실패하면 전체 rollback)
+    @Transactional
+    public void decreaseAll(Map<Long, Long> quantities, Map<Long, Long> fencingTokens) {
+        new TreeMap<>(quantities).forEach((id, quantity) -> decrease(id, quantity, fencingTokens.get(id)));
+    }
+
+}
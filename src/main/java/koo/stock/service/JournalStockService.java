@@ -0,0 +1,170 @@
+package koo.stock.service;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.StockMovement;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.StockMovementRepository;
+import koo.stock.repository.StockRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Event sourcing 방식의 재고 감소
+ * Stock row를 update하지 않고 StockMovement를 insert만 하므로 하나의 row에 lock이 몰리지 않고 변경 이력이 남는다.
+ * 재고 확인은 id별 메모리 잔량으로 하고, Stock 수량에는 StockJournalSnapshotter가 주기적으로 모아서 반영한다.
+ * 메모리 잔량은 서버마다 따로 가지므로 같은 id의 감소는 한 서버(또는 이 방식)로만 들어와야 한다.
+ */
+@Service
+public class JournalStockService {
+
+    private final StockRepository stockRepository;
+    private final StockMovementRepository stockMovementRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Map<Long, AtomicLong> balances = new ConcurrentHashMap<>();
+
+    public JournalStockService(StockRepository stockRepository, StockMovementRepository stockMovementRepository,
+                               ApplicationEventPublisher eventPublisher) {
+        this.stockRepository = stockRepository;
+        this.stockMovementRepository = stockMovementRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public void decrease(Long id, Long quantity) {
+        if (quantity <= 0) { // 음수 감소는 잔량을 늘리고 음수 movement를 남기므로 잔량을 불러오기 전에 거절
+            throw new IllegalArgumentException("감소 수량은 0보다 커야 합니다.");
+        }
+
+        AtomicLong balance = balance(id);
+        long remaining;
+
+        do { // 잔량 확인과 차감을 CAS로 처리해 lock 없이 0개 미만을 막는다.
+            long current = balance.get();
+            if (current < quantity) {
+                throw new OutOfStockException();
+            }
+            remaining = current - quantity;
+            if (balance.compareAndSet(current, remaining)) {
+                break;
+            }
+        } while (true);
+
+        try {
+            stockMovementRepository.save(StockMovement.decrease(id, quantity));
+        } catch (RuntimeException e) {
+            balance.addAndGet(quantity); // 기록하지 못한 감소는 잔량에 되돌린다.
+            throw e;
+        }
+
+        eventPublisher.publishEvent(new StockChangedEvent(id, remaining));
+    }
+
+    public Long increase(Long id, Long quantity) { // 입고도 이력으로 남긴다.
+        AtomicLong balance = balance(id);
+
+        stockMovementRepository.save(StockMovement.increase(id, quantity));
+        long remaining = balance.addAndGet(quantity);
+        eventPublisher.publishEvent(new StockChangedEvent(id, remaining));
+
+        return remaining;
+    }
+
+    public Long set(Long id, Long quantity) { // 지정한 수량과의 차이를 이력으로 남긴다.
+        AtomicLong balance = balance(id);
+        long current;
+
+        do {
+            current = balance.get();
+        } while (!balance.compareAndSet(current, quantity));
+
+        try {
+            stockMovementRepository.save(new StockMovement(id, quantity - current));
+        } catch (RuntimeException e) {
+            balance.addAndGet(current - quantity);
+            throw e;
+        }
+
+        eventPublisher.publishEvent(new StockChangedEvent(id, quantity));
+
+        return quantity;
+    }
+
+    /**
+     * 예약한 수량을 메모리 잔량에서 뺀다. 이력은 남기지 않는다. (Stock 수량은 예약을 확정할 때 줄어든다)
+     * 잔량을 가지고 있지 않은 id는 처음 복원할 때 예약 수량을 빼므로 아무것도 하지 않는다.
+     */
+    public void reserve(Long id, Long quantity) {
+        AtomicLong balance = balances.get(id);
+
+        if (balance == null) {
+            return;
+        }
+
+        long current;
+        do {
+            current = balance.get();
+            if (current < quantity) {
+                throw new OutOfStockException();
+            }
+        } while (!balance.compareAndSet(current, current - quantity));
+    }
+
+    public void release(Long id, Long quantity) { // 예약 해제
+        AtomicLong balance = balances.get(id);
+
+        if (balance != null) {
+            balance.addAndGet(quantity);
+        }
+    }
+
+    public boolean isTracking(Long id) { // 이 서버가 메모리 잔량을 가지고 있는 id인지
+        return balances.containsKey(id);
+    }
+
+    public Long getQuantity(Long id) {
+        return balance(id).get();
+    }
+
+    /**
+     * 아직 반영되지 않은 변경량을 Stock 수량에 한번의 update로 반영
+     */
+    @Transactional
+    public void snapshot(Long id) {
+        String snapshotId = UUID.randomUUID().toString();
+
+        if (stockMovementRepository.markSnapshot(id, snapshotId) == 0) {
+            return;
+        }
+
+        Long change = stockMovementRepository.sumBySnapshotId(snapshotId);
+        stockRepository.applyDelta(id, -change); // applyDelta는 감소량을 받는다.
+    }
+
+    /**
+     * 이력을 처음부터 다시 더해 계산한 잔량 (reconciliation용)
+     */
+    public Long replay(Long id, Long initialQuantity) {
+        List<StockMovement> movements = stockMovementRepository.findAllByStockIdOrderById(id);
+
+        return initialQuantity + movements.stream().mapToLong(StockMovement::getQuantity).sum();
+    }
+
+    private AtomicLong balance(Long id) { // 처음 접근할 때 snapshot 수량 + 반영되지 않은 변경량으로 복원
+        return balances.computeIfAbsent(id, key -> {
+            Long balance = stockMovementRepository.findBalance(key);
+            if (balance == null) {
+                throw new NoSuchElementException("존재하지 않는 Stock입니다. id=" + key);
+            }
+
+            return new AtomicLong(balance);
+        });
+    }
+
+}
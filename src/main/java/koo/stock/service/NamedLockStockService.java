@@ -1,18 +1,25 @@
 package koo.stock.service;
 
 import koo.stock.domain.Stock;
+import koo.stock.event.StockChangedEvent;
 import koo.stock.repository.StockRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class NamedLockStockService {
 
     private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public NamedLockStockService(StockRepository stockRepository) {
+    public NamedLockStockService(StockRepository stockRepository, ApplicationEventPublisher eventPublisher) {
         this.stockRepository = stockRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     // Stock 조회
@@ -28,6 +35,15 @@ public class NamedLockStockService {
         Stock stock = stockRepository.findById(id).orElseThrow();
         stock.decrease(quantity);
         stockRepository.saveAndFlush(stock);
+        eventPublisher.publishEvent(StockChangedEvent.of(stock));
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void decreaseAll(Map<Long, Long> quantities) {
+        List<Stock> stocks = stockRepository.findAllById(quantities.keySet());
+        Stock.decreaseAll(stocks, quantities);
+        stockRepository.saveAllAndFlush(stocks);
+        stocks.forEach(stock -> eventPublisher.publishEvent(StockChangedEvent.of(stock)));
     }
 
 }
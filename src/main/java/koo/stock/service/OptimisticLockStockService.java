@@ -1,17 +1,25 @@
 package koo.stock.service;
 
 import koo.stock.domain.Stock;
+import koo.stock.event.StockChangedEvent;
 import koo.stock.repository.StockRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
 @Service
 public class OptimisticLockStockService {
 
     private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public OptimisticLockStockService(StockRepository stockRepository) {
+    public OptimisticLockStockService(StockRepository stockRepository, ApplicationEventPublisher eventPublisher) {
         this.stockRepository = stockRepository;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -20,7 +28,18 @@ public class OptimisticLockStockService {
 
         stock.decrease(quantity);
 
-        stockRepository.save(stock);
+        stockRepository.saveAndFlush(stock); // 이벤트에 증가된 version이 실리도록 commit 전에 반영
+        eventPublisher.publishEvent(StockChangedEvent.of(stock)); // commit 이후 캐시에 반영된다.
+    }
+
+    @Transactional
+    public void decreaseAll(Map<Long, Long> quantities) {
+        List<Stock> stocks = stockRepository.findAllByIdWithOptimisticLock(new TreeMap<>(quantities).keySet());
+
+        Stock.decreaseAll(stocks, quantities);
+
+        stockRepository.saveAllAndFlush(stocks);
+        stocks.forEach(stock -> eventPublisher.publishEvent(StockChangedEvent.of(stock)));
     }
 
 }
@@ -1,26 +1,119 @@
 package koo.stock.service;
 
 import koo.stock.domain.Stock;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.metrics.StockMetrics;
 import koo.stock.repository.StockRepository;
+import koo.stock.strategy.StockDecreaseStrategy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
 @Service
-public class PessimisticLockStockService {
+public class PessimisticLockStockService implements StockDecreaseStrategy {
+
+    private static final String STRATEGY = "pessimistic";
 
     private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockMetrics stockMetrics;
 
-    public PessimisticLockStockService(StockRepository stockRepository) {
+    public PessimisticLockStockService(StockRepository stockRepository, ApplicationEventPublisher eventPublisher, StockMetrics stockMetrics) {
         this.stockRepository = stockRepository;
+        this.eventPublisher = eventPublisher;
+        this.stockMetrics = stockMetrics;
     }
 
+    @Override
+    public String getName() {
+        return STRATEGY;
+    }
+
+    @Override
+    public boolean isMixable() { // select ... for update로 최신 row를 읽고 갱신
+        return true;
+    }
+
+    @Override
     @Transactional
     public void decrease(Long id, Long quantity) {
-        Stock stock = stockRepository.findByIdWithPessimisticLock(id);
+        stockMetrics.track(STRATEGY, id, () -> {
+            long start = System.nanoTime();
+            Stock stock = stockRepository.findByIdWithPessimisticLock(id);
+            stockMetrics.recordLockWait(STRATEGY, id, start); // select ... for update 가 row lock을 기다린 시간
+
+            decrease(stock, quantity);
+            stockMetrics.recordTransaction(STRATEGY, id, start);
+        });
+    }
 
+    // 다른 방식(Optimistic facade의 fallback)이 호출하는 감소 (그 방식의 지표로만 집계되도록 pessimistic 지표는 남기지 않는다)
+    @Transactional
+    public void decreaseUntracked(Long id, Long quantity) {
+        decrease(stockRepository.findByIdWithPessimisticLock(id), quantity);
+    }
+
+    @Transactional
+    public void decreaseAll(Map<Long, Long> quantities) {
+        stockMetrics.track(STRATEGY, null, () -> { // 여러 id에 걸친 요청은 key 태그 없이(other) 집계
+            long start = System.nanoTime();
+            List<Stock> stocks = stockRepository.findAllByIdWithPessimisticLock(new TreeMap<>(quantities).keySet());
+            stockMetrics.recordLockWait(STRATEGY, null, start);
+
+            decreaseAll(stocks, quantities);
+            stockMetrics.recordTransaction(STRATEGY, null, start);
+        });
+    }
+
+    @Transactional
+    public void decreaseAllUntracked(Map<Long, Long> quantities) {
+        decreaseAll(stockRepository.findAllByIdWithPessimisticLock(new TreeMap<>(quantities).keySet()), quantities);
+    }
+
+    // 입고와 수량 지정도 같은 row lock을 잡고 갱신한다. (Redis 수량과 이벤트는 commit 이후 RestockService가 맞춘다)
+    @Transactional
+    public Stock increase(Long id, Long quantity) {
+        Stock stock = findWithLock(id);
+        stock.increase(quantity);
+
+        return stockRepository.save(stock);
+    }
+
+    @Transactional
+    public Stock setQuantity(Long id, Long quantity) {
+        Stock stock = findWithLock(id);
+        stock.setQuantity(quantity);
+
+        return stockRepository.save(stock);
+    }
+
+    private void decrease(Stock stock, Long quantity) {
         stock.decrease(quantity);
 
-        stockRepository.save(stock);
+        stockRepository.saveAndFlush(stock); // 이벤트에 증가된 version이 실리도록 commit 전에 반영
+        eventPublisher.publishEvent(StockChangedEvent.of(stock)); // commit 이후 캐시에 반영된다.
+    }
+
+    private void decreaseAll(List<Stock> stocks, Map<Long, Long> quantities) {
+        Stock.decreaseAll(stocks, quantities);
+
+        stockRepository.saveAllAndFlush(stocks);
+        stocks.forEach(stock -> eventPublisher.publishEvent(StockChangedEvent.of(stock)));
+    }
+
+    private Stock findWithLock(Long id) {
+        Stock stock = stockRepository.findByIdWithPessimisticLock(id);
+
+        if (stock == null) {
+            throw new NoSuchElementException("존재하지 않는 Stock입니다. id=" + id);
+        }
+
+        return stock;
     }
 
 }
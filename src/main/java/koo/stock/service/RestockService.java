@@ -0,0 +1,167 @@
+package koo.stock.service;
+
+import koo.stock.domain.Stock;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.lock.LockAcquisitionTimeoutException;
+import koo.stock.repository.RedisStockRepository;
+import koo.stock.repository.StockRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 입고(increase)와 수량 지정(set)
+ * Stock row는 row lock을 잡고 갱신해 version을 올리므로, 같은 row를 읽고 쓰는 모든 감소 방식(lock, version, 조건부 update)과 섞여도 갱신이 유실되지 않는다.
+ * row 밖에 수량을 따로 들고 있는 방식은 그 수량도 함께 맞춘다.
+ *  - Redis counter: DB 트랜잭션이 commit된 뒤에 Redis 수량을 증가시키거나 새 수량으로 맞춘다. (rollback된 수량이 Redis에 남지 않도록)
+ *  - Journal: 이 서버가 잔량을 가지고 있는 id는 row 대신 이력(StockMovement)으로 기록한다.
+ * 변경 후 수량으로 StockChangedEvent를 발행해 캐시와 품절 표시가 갱신된다. (0보다 크면 품절 해제)
+ */
+@Service
+public class RestockService {
+
+    private final PessimisticLockStockService pessimisticLockStockService;
+    private final StockRepository stockRepository;
+    private final RedisStockRepository redisStockRepository;
+    private final JournalStockService journalStockService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final long flushLockWaitMillis;
+
+    public RestockService(PessimisticLockStockService pessimisticLockStockService, StockRepository stockRepository,
+                          RedisStockRepository redisStockRepository, JournalStockService journalStockService,
+                          ApplicationEventPublisher eventPublisher,
+                          @Value("${stock.redis-counter.flush-lock-wait-millis:3000}") long flushLockWaitMillis) {
+        this.pessimisticLockStockService = pessimisticLockStockService;
+        this.stockRepository = stockRepository;
+        this.redisStockRepository = redisStockRepository;
+        this.journalStockService = journalStockService;
+        this.eventPublisher = eventPublisher;
+        this.flushLockWaitMillis = flushLockWaitMillis;
+    }
+
+    public Long increase(Long id, Long quantity) {
+        if (quantity == null || quantity <= 0) { // 어느 경로로 처리하든 같은 기준으로 먼저 검증 (Journal 경로는 Stock을 거치지 않는다)
+            throw new IllegalArgumentException("입고 수량은 0보다 커야 합니다.");
+        }
+
+        if (journalStockService.isTracking(id)) {
+            return journalStockService.increase(id, quantity);
+        }
+
+        // commit 이후에 Redis로 처음 올라간 수량에는 입고량이 이미 들어있으므로, 입고 전부터 올라가 있던 경우에만 Redis를 올린다.
+        boolean counted = redisStockRepository.getQuantity(id) != null;
+        Stock stock = pessimisticLockStockService.increase(id, quantity); // commit된 후 반환
+
+        // Redis 수량 = DB 수량 - 반영되지 않은 감소량 이므로 같은 양만큼 올린다.
+        // 증가는 flush(감소량 반영)와 순서가 바뀌어도 결과가 같으므로 flush lock을 잡지 않는다.
+        Long remaining = counted ? redisStockRepository.increase(id, quantity) : RedisStockRepository.NOT_LOADED;
+        eventPublisher.publishEvent(remaining >= 0 ? new StockChangedEvent(id, remaining) : StockChangedEvent.of(stock));
+
+        return stock.getQuantity();
+    }
+
+    public Long set(Long id, Long quantity) throws InterruptedException {
+        if (quantity == null || quantity < 0) {
+            throw new IllegalArgumentException("재고 수량은 0보다 작을 수 없습니다.");
+        }
+
+        if (journalStockService.isTracking(id)) {
+            return journalStockService.set(id, quantity);
+        }
+
+        // 지정한 수량과 Redis의 누적 감소량이 어긋나지 않도록, 수량 지정부터 Redis 반영까지 flush를 막는다.
+        String ownerToken = lockFlush(id);
+        try {
+            Long baseDelta = redisStockRepository.getDelta(id); // 지정한 수량에 이미 포함된 감소량 (이후 감소량은 새 수량에서 뺀다)
+            Stock stock = pessimisticLockStockService.setQuantity(id, quantity); // commit된 후 반환
+
+            Long counted = redisStockRepository.getQuantity(id) != null
+                    ? redisStockRepository.reset(id, stock.getAvailableQuantity(), baseDelta) // Redis 수량은 예약된 수량을 뺀 수량
+                    : null;
+            eventPublisher.publishEvent(counted != null ? new StockChangedEvent(id, counted) : StockChangedEvent.of(stock));
+        } finally {
+            redisStockRepository.unlockFlush(id, ownerToken);
+        }
+
+        return quantity;
+    }
+
+    /**
+     * 여러 Stock의 수량을 한번에 지정 (CSV 적재)
+     * journal 잔량을 가진 id는 set과 같이 이력으로 남기고, 나머지는 write가 DB에 한번에 쓴 뒤 Redis 수량과 캐시, 품절 표시를 맞춘다.
+     * Redis 수량과 누적 감소량은 MGET 한번씩으로 읽고, Redis에 수량이 올라가 있는 id만 write부터 Redis 반영까지 flush를 막는다.
+     *
+     * @param write journal이 아닌 id의 수량(id -> 수량)을 DB에 한번에 쓰는 작업
+     */
+    public void setAll(Map<Long, Long> quantities, Consumer<Map<Long, Long>> write) throws InterruptedException {
+        quantities.values().forEach(quantity -> {
+            if (quantity == null || quantity < 0) {
+                throw new IllegalArgumentException("재고 수량은 0보다 작을 수 없습니다.");
+            }
+        });
+
+        Map<Long, Long> rows = new LinkedHashMap<>();
+        quantities.forEach((id, quantity) -> {
+            if (journalStockService.isTracking(id)) {
+                journalStockService.set(id, quantity);
+            } else {
+                rows.put(id, quantity);
+            }
+        });
+
+        List<Long> counted = rows.isEmpty() ? List.of() : redisStockRepository.findLoadedIds(new ArrayList<>(rows.keySet()));
+        Map<Long, String> ownerTokens = new TreeMap<>();
+        try {
+            for (Long id : new TreeMap<>(rows).keySet()) { // 여러 importer가 서로 다른 순서로 lock을 잡지 않도록 id 순서로
+                if (counted.contains(id)) {
+                    ownerTokens.put(id, lockFlush(id));
+                }
+            }
+
+            Map<Long, Long> baseDeltas = counted.isEmpty() ? Map.of() : redisStockRepository.getDeltas(counted);
+            write.accept(rows); // commit된 후 반환
+
+            if (rows.isEmpty()) {
+                return;
+            }
+
+            Map<Long, Stock> stocks = stockRepository.findAllById(rows.keySet()).stream()
+                    .collect(Collectors.toMap(Stock::getId, Function.identity()));
+            stocks.values().forEach(stock -> {
+                Long counter = baseDeltas.containsKey(stock.getId())
+                        ? redisStockRepository.reset(stock.getId(), stock.getAvailableQuantity(), baseDeltas.get(stock.getId()))
+                        : null;
+                eventPublisher.publishEvent(counter != null ? new StockChangedEvent(stock.getId(), counter) : StockChangedEvent.of(stock));
+            });
+        } finally {
+            ownerTokens.forEach(redisStockRepository::unlockFlush);
+        }
+    }
+
+    private String lockFlush(Long id) throws InterruptedException {
+        String ownerToken = UUID.randomUUID().toString();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushLockWaitMillis);
+
+        while (!Boolean.TRUE.equals(redisStockRepository.lockFlush(id, ownerToken))) { // flush는 update 한번이면 끝나므로 짧게 기다린다.
+            if (System.nanoTime() > deadline) {
+                throw new LockAcquisitionTimeoutException(id, flushLockWaitMillis);
+            }
+
+            Thread.sleep(10);
+        }
+
+        return ownerToken;
+    }
+
+}
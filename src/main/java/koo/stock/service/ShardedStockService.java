@@ -0,0 +1,110 @@
+package koo.stock.service;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.Stock;
+import koo.stock.domain.StockShard;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.StockRepository;
+import koo.stock.repository.StockShardRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stock 수량을 여러 shard row로 나누어 관리
+ * split 이후에는 Stock row가 아닌 shard 합계가 판매 가능한 수량이므로, 바뀔 때마다 합계로 StockChangedEvent를 발행해 캐시와 품절 표시가 0으로 보지 않게 한다.
+ * (shard row에는 version이 없어 이벤트에도 version을 싣지 않는다)
+ */
+@Service
+public class ShardedStockService {
+
+    private final StockRepository stockRepository;
+    private final StockShardRepository stockShardRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ShardedStockService(StockRepository stockRepository, StockShardRepository stockShardRepository,
+                               ApplicationEventPublisher eventPublisher) {
+        this.stockRepository = stockRepository;
+        this.stockShardRepository = stockShardRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Stock의 판매 가능한 수량을 shardCount개의 StockShard로 옮긴다. 이후 Stock.quantity는 예약된 수량만 남고 판매 가능한 수량은 shard의 합이다.
+    @Transactional
+    public void split(Long stockId, int shardCount) {
+        if (stockShardRepository.countByStockId(stockId) > 0) {
+            throw new IllegalStateException("이미 shard로 나누어진 Stock 입니다. id=" + stockId);
+        }
+
+        Stock stock = stockRepository.findByIdWithPessimisticLock(stockId);
+        long total = stock.getAvailableQuantity();
+        List<StockShard> shards = new ArrayList<>(shardCount);
+
+        for (int shardNo = 0; shardNo < shardCount; shardNo++) {
+            shards.add(new StockShard(stockId, shardNo, share(total, shardCount, shardNo)));
+        }
+
+        stock.decrease(total);
+        stockRepository.save(stock);
+        stockShardRepository.saveAll(shards);
+        eventPublisher.publishEvent(new StockChangedEvent(stockId, total));
+    }
+
+    // 어느 한 shard로는 감당할 수 없는 수량일 때 모든 shard에 lock을 걸고 나누어 감소
+    @Transactional
+    public void decreaseAcrossShards(Long stockId, Long quantity) {
+        List<StockShard> shards = stockShardRepository.findAllByStockIdWithPessimisticLock(stockId);
+        long total = shards.stream().mapToLong(StockShard::getQuantity).sum();
+
+        if (total < quantity) {
+            throw new OutOfStockException();
+        }
+
+        long remaining = quantity;
+        for (StockShard shard : shards) {
+            long taken = Math.min(shard.getQuantity(), remaining);
+            shard.decrease(taken);
+            remaining -= taken;
+
+            if (remaining == 0) {
+                break;
+            }
+        }
+
+        eventPublisher.publishEvent(new StockChangedEvent(stockId, total - quantity));
+    }
+
+    // 한쪽 shard만 먼저 소진되지 않도록 수량을 고르게 다시 나눈다.
+    @Transactional
+    public void rebalance(Long stockId) {
+        List<StockShard> shards = stockShardRepository.findAllByStockIdWithPessimisticLock(stockId);
+        long total = shards.stream().mapToLong(StockShard::getQuantity).sum();
+        long max = shards.stream().mapToLong(StockShard::getQuantity).max().orElse(0);
+        long min = shards.stream().mapToLong(StockShard::getQuantity).min().orElse(0);
+
+        if (max - min <= 1) { // 이미 고르게 나누어져 있으면 쓰기를 발생시키지 않는다.
+            return;
+        }
+
+        for (StockShard shard : shards) {
+            long target = share(total, shards.size(), shard.getShardNo());
+            long current = shard.getQuantity();
+
+            if (target > current) {
+                shard.increase(target - current);
+            } else if (target < current) {
+                shard.decrease(current - target);
+            }
+        }
+
+        eventPublisher.publishEvent(new StockChangedEvent(stockId, total)); // 합계는 그대로지만 그 사이 다른 서버가 놓친 값을 다시 맞춘다.
+    }
+
+    private long share(long total, int shardCount, int shardNo) { // 나머지는 앞 번호 shard부터 1개씩 더 배분
+        return total / shardCount + (shardNo < total % shardCount ? 1 : 0);
+    }
+
+}
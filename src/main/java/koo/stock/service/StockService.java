@@ -1,27 +1,109 @@
 package koo.stock.service;
 
 import koo.stock.domain.Stock;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.metrics.StockMetrics;
 import koo.stock.repository.StockRepository;
+import koo.stock.strategy.StockDecreaseStrategy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
 @Service
-public class StockService {
+public class StockService implements StockDecreaseStrategy {
+
+    private static final String STRATEGY = "synchronized";
 
     private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final StockMetrics stockMetrics;
+    private final Lock lock = new ReentrantLock(); // synchronized는 JDBC 대기 동안 virtual thread를 carrier thread에 고정(pinning)시키므로 ReentrantLock 사용
 
-    public StockService(StockRepository stockRepository) {
+    public StockService(StockRepository stockRepository, ApplicationEventPublisher eventPublisher, StockMetrics stockMetrics) {
         this.stockRepository = stockRepository;
+        this.eventPublisher = eventPublisher;
+        this.stockMetrics = stockMetrics;
+    }
+
+    @Override
+    public String getName() {
+        return STRATEGY;
     }
 
     // Stock 조회
     // 재고 감소
     // 갱신된 값 저장
     // @Transactional
-    public synchronized void decrease(Long id, Long quantity) { // synchronized를 적용해 한개의 공유자원에 한개의 주체만 접근 가능하게 하여 race condition 해소 (but synchronized는 프로세스(서버) 단위로 동작하기 때문에 스레드들의 race condition이 해소되지 않는다. -> @Transactional 어노테이션을 지우면 race condition이 해소 된다.)
+    @Override
+    public void decrease(Long id, Long quantity) { // lock(ReentrantLock)을 적용해 한개의 공유자원에 한개의 주체만 접근 가능하게 하여 race condition 해소 (but synchronized는 프로세스(서버) 단위로 동작하기 때문에 스레드들의 race condition이 해소되지 않는다. -> @Transactional 어노테이션을 지우면 race condition이 해소 된다.)
+        stockMetrics.track(STRATEGY, id, () -> {
+            long waitStart = System.nanoTime();
+            lock.lock();
+            stockMetrics.recordLockWait(STRATEGY, id, waitStart);
+
+            long holdStart = System.nanoTime();
+            try {
+                decreaseLocked(id, quantity);
+            } finally {
+                lock.unlock();
+                stockMetrics.recordLockHold(STRATEGY, id, holdStart);
+            }
+        });
+    }
+
+    // 다른 방식(Redisson facade)이 자신의 lock 안에서 호출하는 감소 (그 방식의 지표로만 집계되도록 synchronized 지표는 남기지 않는다)
+    public void decreaseUntracked(Long id, Long quantity) {
+        lock.lock();
+        try {
+            decreaseLocked(id, quantity);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // 주문에 포함된 여러 Stock을 한번에 감소 (모두 성공하거나 모두 실패)
+    public void decreaseAll(Map<Long, Long> quantities) {
+        stockMetrics.track(STRATEGY, null, () -> { // 여러 id에 걸친 요청은 key 태그 없이(other) 집계
+            long waitStart = System.nanoTime();
+            lock.lock();
+            stockMetrics.recordLockWait(STRATEGY, null, waitStart);
+
+            long holdStart = System.nanoTime();
+            try {
+                decreaseAllLocked(quantities);
+            } finally {
+                lock.unlock();
+                stockMetrics.recordLockHold(STRATEGY, null, holdStart);
+            }
+        });
+    }
+
+    public void decreaseAllUntracked(Map<Long, Long> quantities) {
+        lock.lock();
+        try {
+            decreaseAllLocked(quantities);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decreaseLocked(Long id, Long quantity) {
         Stock stock = stockRepository.findById(id).orElseThrow();
         stock.decrease(quantity);
         stockRepository.saveAndFlush(stock);
+        eventPublisher.publishEvent(StockChangedEvent.of(stock));
+    }
+
+    private void decreaseAllLocked(Map<Long, Long> quantities) {
+        List<Stock> stocks = stockRepository.findAllById(quantities.keySet());
+        Stock.decreaseAll(stocks, quantities); // 모든 감소를 먼저 검증한 후
+        stockRepository.saveAllAndFlush(stocks); // 하나의 트랜잭션으로 저장
+        stocks.forEach(stock -> eventPublisher.publishEvent(StockChangedEvent.of(stock)));
     }
 
 }
@@ -0,0 +1,162 @@
+package koo.stock.soldout;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import koo.stock.domain.OutOfStockException;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.RedisStockRepository;
+import koo.stock.repository.StockRepository;
+import koo.stock.service.JournalStockService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 품절된 Stock id 목록 (서버마다 메모리에 두고 Redis pub/sub으로 다른 서버와 맞춘다)
+ * 어느 전략으로든 남은 수량이 0이 되면 품절로 표시하고, 이후 요청은 lock, Redis, DB를 거치지 않고 바로 거절한다.
+ * 수량이 다시 0보다 커지면(입고) 표시를 해제한다.
+ * 이벤트는 도착 순서가 보장되지 않으므로 이미 본 것보다 오래된 version의 이벤트와 알림은 무시하고,
+ * 품절로 표시하기 전에는 현재 수량을 한번 더 확인해 입고 이후에 늦게 도착한 0 때문에 다시 품절이 되지 않도록 한다.
+ * 이벤트 없이 DB가 직접 바뀌는 경우를 위해 표시는 ttl이 지나면 사라지고, 다음 요청이 실제 수량을 다시 확인한다.
+ */
+@Component
+public class SoldOutRegistry implements MessageListener {
+
+    public static final String CHANNEL = "stock:sold-out";
+
+    private static final String SOLD_OUT = "SOLD_OUT";
+    private static final String REARM = "REARM";
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final StockRepository stockRepository;
+    private final RedisStockRepository redisStockRepository;
+    private final JournalStockService journalStockService;
+    private final long ttlNanos;
+    private final Map<Long, Long> soldOut = new ConcurrentHashMap<>(); // id -> 품절로 표시한 시각(nanoTime)
+    private final Cache<Long, Long> versions; // id -> 마지막으로 반영한 version (표시와 같은 ttl 동안만 기억)
+
+    public SoldOutRegistry(RedisTemplate<String, String> redisTemplate, StockRepository stockRepository,
+                           RedisStockRepository redisStockRepository, JournalStockService journalStockService,
+                           @Value("${stock.sold-out.ttl-millis:60000}") long ttlMillis) {
+        this.redisTemplate = redisTemplate;
+        this.stockRepository = stockRepository;
+        this.redisStockRepository = redisStockRepository;
+        this.journalStockService = journalStockService;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+        this.versions = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMillis))
+                .build();
+    }
+
+    public boolean isSoldOut(Long id) {
+        Long markedAt = soldOut.get(id);
+
+        if (markedAt == null) {
+            return false;
+        }
+
+        if (System.nanoTime() - markedAt > ttlNanos) {
+            soldOut.remove(id, markedAt);
+            return false;
+        }
+
+        return true;
+    }
+
+    public void check(Long id) { // 품절이면 OutOfStockException
+        if (isSoldOut(id)) {
+            throw new OutOfStockException();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true) // commit된 수량만 반영
+    public void on(StockChangedEvent event) {
+        if (event.quantity() == null) { // 변경 후 수량을 모르는 경우는 판단하지 않는다.
+            return;
+        }
+
+        if (isStale(event.stockId(), event.version())) {
+            return;
+        }
+
+        if (event.quantity() == 0) {
+            if (currentQuantity(event.stockId()) > 0) { // 그 사이 입고된 경우
+                return;
+            }
+
+            if (soldOut.put(event.stockId(), System.nanoTime()) == null) { // 상태가 바뀐 경우에만 다른 서버에 알린다.
+                publish(SOLD_OUT, event.stockId(), event.version());
+            }
+        } else if (soldOut.remove(event.stockId()) != null) {
+            publish(REARM, event.stockId(), event.version());
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) { // 다른 서버(자신 포함)의 품절/입고 알림 (type:id:version)
+        String[] body = new String(message.getBody(), StandardCharsets.UTF_8).split(":", -1);
+        Long id = Long.valueOf(body[1]);
+        Long version = body.length > 2 && !body[2].isEmpty() ? Long.valueOf(body[2]) : null;
+
+        if (isStale(id, version)) {
+            return;
+        }
+
+        if (SOLD_OUT.equals(body[0])) {
+            soldOut.putIfAbsent(id, System.nanoTime());
+        } else {
+            soldOut.remove(id);
+        }
+    }
+
+    /**
+     * 이미 반영한 version 이하면 true, 아니면 version을 기억하고 false (version이 없으면 판단하지 않는다)
+     * 자신이 보낸 알림도 pub/sub으로 다시 받으므로, 같은 version을 무시해야 그 사이 입고로 해제된 표시가 되살아나지 않는다.
+     */
+    private boolean isStale(Long id, Long version) {
+        if (version == null) {
+            return false;
+        }
+
+        boolean[] stale = new boolean[1];
+        versions.asMap().compute(id, (key, last) -> {
+            if (last != null && last >= version) {
+                stale[0] = true;
+                return last;
+            }
+
+            return version;
+        });
+
+        return stale[0];
+    }
+
+    private long currentQuantity(Long id) { // 수량을 들고 있는 곳(Redis counter -> journal 잔량 -> DB) 순서로 확인
+        Long counted = redisStockRepository.getQuantity(id);
+        if (counted != null) {
+            return counted;
+        }
+
+        if (journalStockService.isTracking(id)) {
+            return journalStockService.getQuantity(id);
+        }
+
+        Long quantity = stockRepository.findAvailableQuantity(id); // shard로 나누어진 Stock은 shard 합계
+
+        return quantity == null ? 0L : quantity;
+    }
+
+    private void publish(String type, Long id, Long version) {
+        redisTemplate.convertAndSend(CHANNEL, type + ":" + id + ":" + (version == null ? "" : version));
+    }
+
+}
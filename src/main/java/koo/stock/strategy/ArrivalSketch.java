@@ -0,0 +1,29 @@
+package koo.stock.strategy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class ArrivalSketch { // id별 최근 요청 수를 sketch로 추적 (충돌 비율은 ContentionTracker 하나로만 추적한다)
+
+    private final DecayingCountMinSketch arrivals;
+
+    public ArrivalSketch(@Value("${stock.router.sketch-width:4096}") int width) {
+        this.arrivals = new DecayingCountMinSketch(width);
+    }
+
+    public void recordArrival(Long id) {
+        arrivals.increment(id);
+    }
+
+    public long arrivals(Long id) {
+        return arrivals.estimate(id);
+    }
+
+    @Scheduled(fixedDelayString = "${stock.router.decay-interval-millis:1000}") // 주기마다 절반으로 줄여 최근 트래픽 위주로 판단
+    public void decay() {
+        arrivals.decay();
+    }
+
+}
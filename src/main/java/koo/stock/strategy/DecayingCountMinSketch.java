@@ -0,0 +1,50 @@
+package koo.stock.strategy;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 감쇠하는 count-min sketch
+ * id 수와 관계없이 고정된 메모리(depth x width)로 id별 횟수를 근사하고, decay()마다 모든 값을 절반으로 줄여 최근 횟수에 가중치를 둔다.
+ * 해시 충돌로 실제보다 크게 추정될 수는 있어도 작게 추정되지는 않는다.
+ */
+public class DecayingCountMinSketch {
+
+    private static final long[] SEEDS = {0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L};
+
+    private final int width;
+    private final AtomicLongArray counts;
+
+    public DecayingCountMinSketch(int width) {
+        this.width = width;
+        this.counts = new AtomicLongArray(SEEDS.length * width);
+    }
+
+    public void increment(long key) {
+        for (int row = 0; row < SEEDS.length; row++) {
+            counts.incrementAndGet(index(row, key));
+        }
+    }
+
+    public long estimate(long key) { // 행마다 충돌로 더해진 값이 다르므로 가장 작은 값이 실제에 가장 가깝다.
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            min = Math.min(min, counts.get(index(row, key)));
+        }
+
+        return min;
+    }
+
+    public void decay() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.getAndUpdate(i, count -> count >> 1);
+        }
+    }
+
+    private int index(int row, long key) {
+        long hash = (key + SEEDS[row]) * 0xBF58476D1CE4E5B9L; // splitmix64 계열의 섞기
+        hash ^= hash >>> 31;
+
+        return row * width + (int) Math.floorMod(hash, (long) width);
+    }
+
+}
@@ -0,0 +1,23 @@
+package koo.stock.strategy;
+
+/**
+ * 단일 Stock 감소 방식 (synchronized, pessimistic, optimistic, named, lettuce, redisson)
+ * 모든 구현은 같은 Stock row를 version 검사, row lock, 조건부 update 중 하나로 갱신하므로 서로 다른 구현이 섞여도 갱신이 유실되지는 않는다.
+ * 다만 lock 밖에서 읽은 row를 @Version으로 저장하고 재시도하지 않는 구현(synchronized, named, redisson)은
+ * 자신의 lock을 거치지 않는 다른 구현과 섞이면 ObjectOptimisticLockingFailureException으로 실패하므로 isMixable()이 false다.
+ */
+public interface StockDecreaseStrategy {
+
+    String getName(); // StockMetrics의 strategy 태그와 같은 이름
+
+    void decrease(Long id, Long quantity) throws InterruptedException;
+
+    /**
+     * 같은 id에 다른 구현이 함께 쓰여도 실패 없이 감소하는지 (row lock, 조건부 update, 충돌 시 재시도)
+     * StockStrategyRouter는 이 값이 true인 방식으로만 요청을 보낸다.
+     */
+    default boolean isMixable() {
+        return false;
+    }
+
+}
@@ -0,0 +1,133 @@
+package koo.stock.strategy;
+
+import koo.stock.metrics.StockMetrics;
+import koo.stock.retry.ContentionTracker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * id별 최근 요청 수(ArrivalSketch)와 충돌 비율(ContentionTracker)을 보고 감소 방식을 고른다.
+ *  - cold(요청이 적고 충돌이 드문 id): lock 없이 시도하는 optimistic
+ *  - warm(요청이 많거나 충돌이 잦은 id): DB row lock(pessimistic)
+ *  - hot(요청이 매우 많은 id): 서버 안에서 먼저 줄을 세우는 Redis lock(lettuce)
+ * 고른 방식은 reevaluate-interval 동안 유지한 뒤 다시 판단하므로, 요청이 끊이지 않는 id도 트래픽이 늘면 다른 방식으로 옮겨간다.
+ * 방식을 바꾸는 순간 이전 방식의 요청이 처리중일 수 있으므로, 다른 방식과 섞여도 실패하지 않는 방식(StockDecreaseStrategy.isMixable)만 고를 수 있다.
+ * 매 요청마다 바꾸지 않는 것은 방식이 번갈아 섞이며 생기는 version 충돌과 재시도를 줄이기 위해서다.
+ * 방식이 바뀐 횟수는 stock.router.decision, 방식별 요청 수는 stock.router.request로 집계한다.
+ */
+@Component
+public class StockStrategyRouter {
+
+    private final Map<String, StockDecreaseStrategy> strategies;
+    private final ArrivalSketch arrivalSketch;
+    private final ContentionTracker contentionTracker;
+    private final StockMetrics stockMetrics;
+    private final String coldStrategy;
+    private final String warmStrategy;
+    private final String hotStrategy;
+    private final long warmArrivals;
+    private final long hotArrivals;
+    private final long reevaluateNanos;
+    private final Map<Long, Route> routes = new ConcurrentHashMap<>();
+
+    public StockStrategyRouter(List<StockDecreaseStrategy> strategies, ArrivalSketch arrivalSketch,
+                               ContentionTracker contentionTracker, StockMetrics stockMetrics,
+                               @Value("${stock.router.cold-strategy:optimistic}") String coldStrategy,
+                               @Value("${stock.router.warm-strategy:pessimistic}") String warmStrategy,
+                               @Value("${stock.router.hot-strategy:lettuce}") String hotStrategy,
+                               @Value("${stock.router.warm-arrivals:50}") long warmArrivals,
+                               @Value("${stock.router.hot-arrivals:500}") long hotArrivals,
+                               @Value("${stock.router.reevaluate-interval-millis:200}") long reevaluateIntervalMillis) {
+        this.strategies = strategies.stream()
+                .collect(Collectors.toMap(StockDecreaseStrategy::getName, Function.identity()));
+        this.arrivalSketch = arrivalSketch;
+        this.contentionTracker = contentionTracker;
+        this.stockMetrics = stockMetrics;
+        this.coldStrategy = validate(coldStrategy);
+        this.warmStrategy = validate(warmStrategy);
+        this.hotStrategy = validate(hotStrategy);
+        this.warmArrivals = warmArrivals;
+        this.hotArrivals = hotArrivals;
+        this.reevaluateNanos = TimeUnit.MILLISECONDS.toNanos(reevaluateIntervalMillis);
+    }
+
+    public void decrease(Long id, Long quantity) throws InterruptedException {
+        arrivalSketch.recordArrival(id);
+
+        long now = System.nanoTime();
+        StockDecreaseStrategy[] routed = new StockDecreaseStrategy[1]; // compute 안에서 정해진 방식 (이후 다른 요청이 바꿔도 이 요청은 그대로 진행)
+        routes.compute(id, (k, current) -> {
+            Route next = current != null ? current : new Route();
+            if (next.strategy == null || now - next.chosenAt >= reevaluateNanos) { // 유지 기간이 지나면 처리중인 요청이 있어도 다시 판단
+                next.choose(id, choose(id), now);
+            }
+            next.inFlight++;
+            routed[0] = next.strategy;
+
+            return next;
+        });
+        StockDecreaseStrategy strategy = routed[0];
+        stockMetrics.incrementRoutedRequest(strategy.getName(), id);
+
+        try {
+            strategy.decrease(id, quantity);
+        } finally {
+            routes.computeIfPresent(id, (k, current) -> --current.inFlight == 0 ? null : current);
+        }
+    }
+
+    private String validate(String name) { // 설정한 방식이 없거나 섞을 수 없으면 기동 시 실패
+        StockDecreaseStrategy strategy = strategies.get(name);
+
+        if (strategy == null) {
+            throw new IllegalArgumentException("알 수 없는 전략: " + name);
+        }
+
+        if (!strategy.isMixable()) {
+            throw new IllegalArgumentException("다른 방식과 섞으면 version 충돌로 실패하는 전략은 router에 쓸 수 없습니다: " + name);
+        }
+
+        return name;
+    }
+
+    private String choose(Long id) {
+        long arrivals = arrivalSketch.arrivals(id);
+
+        if (arrivals >= hotArrivals) {
+            return hotStrategy;
+        }
+
+        if (arrivals >= warmArrivals || contentionTracker.isHot(id)) { // OptimisticLockStockFacade가 Pessimistic Lock으로 우회하는 기준과 같다.
+            return warmStrategy;
+        }
+
+        return coldStrategy;
+    }
+
+    private class Route { // 필드는 routes.compute 안에서만 갱신
+
+        private StockDecreaseStrategy strategy;
+        private long chosenAt;
+        private int inFlight;
+
+        private void choose(Long id, String name, long now) {
+            StockDecreaseStrategy chosen = strategies.get(name); // 생성자에서 검증한 이름만 들어온다.
+
+            if (chosen != strategy) { // 처음 정하거나 바뀐 경우만 집계 (유지 기간이 지나 같은 방식을 다시 고른 경우는 제외)
+                stockMetrics.incrementRoute(name, id);
+            }
+
+            this.strategy = chosen;
+            this.chosenAt = now;
+        }
+
+    }
+
+}
@@ -0,0 +1,185 @@
+package koo.stock.warmup;
+
+import com.zaxxer.hikari.HikariDataSource;
+import koo.stock.cache.StockQuantityCache;
+import koo.stock.repository.StockMovementRepository;
+import koo.stock.service.JournalStockService;
+import koo.stock.strategy.StockDecreaseStrategy;
+import org.redisson.api.RedissonClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 배포 직후 트래픽을 받기 전 준비 단계
+ * ApplicationRunner는 readiness가 ACCEPTING_TRAFFIC으로 바뀌기 전에 실행되므로 (/actuator/health/readiness), 끝날 때까지 트래픽이 들어오지 않는다.
+ *  1. 커넥션 풀을 미리 채운다.
+ *  2. hot id(설정된 id + 최근 판매량 상위 N개)의 수량을 캐시와 journal 잔량에 올리고 Redisson lock 객체를 만든다. (조회만 한다)
+ *  3. 준비 전용 Stock(stock.warm-up.stock-id)에 수량 1씩 모든 감소 방식을 반복 호출해 JIT 컴파일과 Hibernate 쿼리 계획을 미리 만든다.
+ *     실제 id에 lock을 걸면 다른 서버의 트래픽과 경쟁하고, 읽은 수량으로 발행한 이벤트가 품절 표시를 건드리므로 판매하지 않는 row만 사용한다.
+ * 준비 중 오류는 기록만 하고 기동을 막지 않는다.
+ */
+@Component
+public class StockWarmUp implements ApplicationRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(StockWarmUp.class);
+
+    private final List<HikariDataSource> dataSources;
+    private final StockQuantityCache stockQuantityCache;
+    private final StockMovementRepository stockMovementRepository;
+    private final JournalStockService journalStockService;
+    private final RedissonClient redissonClient;
+    private final List<StockDecreaseStrategy> strategies;
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final Long warmUpStockId;
+    private final List<Long> hotIds;
+    private final int topSelling;
+    private final long recentMinutes;
+    private final int iterations;
+    private final long maxMillis;
+
+    public StockWarmUp(List<HikariDataSource> dataSources, StockQuantityCache stockQuantityCache,
+                       StockMovementRepository stockMovementRepository,
+                       JournalStockService journalStockService, RedissonClient redissonClient,
+                       List<StockDecreaseStrategy> strategies, JdbcTemplate jdbcTemplate,
+                       @Value("${stock.warm-up.enabled:true}") boolean enabled,
+                       @Value("${stock.warm-up.stock-id:-1}") Long warmUpStockId,
+                       @Value("${stock.warm-up.ids:}") List<Long> hotIds,
+                       @Value("${stock.warm-up.top-selling:100}") int topSelling,
+                       @Value("${stock.warm-up.recent-minutes:60}") long recentMinutes,
+                       @Value("${stock.warm-up.iterations:2000}") int iterations,
+                       @Value("${stock.warm-up.max-millis:30000}") long maxMillis) {
+        this.dataSources = dataSources;
+        this.stockQuantityCache = stockQuantityCache;
+        this.stockMovementRepository = stockMovementRepository;
+        this.journalStockService = journalStockService;
+        this.redissonClient = redissonClient;
+        this.strategies = strategies;
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.warmUpStockId = warmUpStockId;
+        this.hotIds = hotIds;
+        this.topSelling = topSelling;
+        this.recentMinutes = recentMinutes;
+        this.iterations = iterations;
+        this.maxMillis = maxMillis;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+
+        dataSources.forEach(this::fillPool);
+        List<Long> preloaded = preload();
+        int calls = exercise();
+
+        log.info("기동 준비 완료 ids={}, calls={}, elapsed={}ms",
+                preloaded.size(), calls, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    private void fillPool(HikariDataSource dataSource) { // 최대 크기만큼 동시에 열었다가 반납해 풀에 idle 커넥션을 채운다.
+        List<Connection> connections = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < dataSource.getMaximumPoolSize(); i++) {
+                connections.add(dataSource.getConnection());
+            }
+        } catch (SQLException e) {
+            log.warn("커넥션 풀 준비 실패 pool={}", dataSource.getPoolName(), e);
+        } finally {
+            for (Connection connection : connections) {
+                try {
+                    connection.close();
+                } catch (SQLException ignored) {
+                }
+            }
+        }
+    }
+
+    private List<Long> preload() {
+        Set<Long> ids = new LinkedHashSet<>(hotIds);
+        List<Long> topSellingIds = List.of();
+
+        try { // 최근 판매량은 journal 이력이 있을 때만 알 수 있다.
+            topSellingIds = stockMovementRepository.findTopSellingStockIds(
+                    LocalDateTime.now().minusMinutes(recentMinutes), PageRequest.of(0, topSelling));
+            ids.addAll(topSellingIds);
+        } catch (RuntimeException e) {
+            log.warn("최근 판매량 조회 실패", e);
+        }
+
+        List<Long> preloaded = new ArrayList<>();
+
+        for (Long id : ids) {
+            try {
+                stockQuantityCache.getQuantity(id);
+
+                if (topSellingIds.contains(id)) {
+                    journalStockService.getQuantity(id); // journal로 팔린 id는 메모리 잔량을 미리 복원
+                }
+                redissonClient.getLock(id.toString()).isLocked(); // lock 객체와 Redis 커넥션을 미리 만든다.
+
+                preloaded.add(id);
+            } catch (NoSuchElementException e) {
+                log.warn("존재하지 않는 hot id={}", id);
+            } catch (RuntimeException e) {
+                log.warn("hot id 준비 실패 id={}", id, e);
+            }
+        }
+
+        return preloaded;
+    }
+
+    private int exercise() {
+        try {
+            // 음수 id는 auto increment 값을 올리지 않으므로 실제 Stock id와 겹치지 않는다.
+            // 호출마다 1씩 줄어도 0이 되지 않도록(품절 이벤트가 나가지 않도록) 호출 횟수보다 많은 수량으로 채운다.
+            jdbcTemplate.update("insert into stock (id, product_id, quantity, reserved, version) values (?, 0, ?, 0, 0) "
+                    + "on duplicate key update quantity = values(quantity), version = version + 1", warmUpStockId, iterations + 1L);
+        } catch (RuntimeException e) {
+            log.warn("준비 전용 Stock 생성 실패 id={}", warmUpStockId, e);
+            return 0;
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxMillis);
+        int calls = 0;
+
+        while (calls < iterations && System.nanoTime() < deadline) {
+            StockDecreaseStrategy strategy = strategies.get(calls % strategies.size());
+
+            try {
+                strategy.decrease(warmUpStockId, 1L); // 0 이하의 수량은 거절되므로 1씩 줄여 lock, 조회, 저장 경로를 모두 지난다.
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.debug("준비 호출 실패 strategy={}", strategy.getName(), e);
+            }
+
+            calls++;
+        }
+
+        return calls;
+    }
+
+}
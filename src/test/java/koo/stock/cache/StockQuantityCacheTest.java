@@ -0,0 +1,72 @@
+package koo.stock.cache;
+
+import koo.stock.domain.Stock;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.StockRepository;
+import koo.stock.service.PessimisticLockStockService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest
+class StockQuantityCacheTest {
+
+    @Autowired
+    private StockQuantityCache stockQuantityCache;
+
+    @Autowired
+    private PessimisticLockStockService pessimisticLockStockService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    private Long stockId;
+
+    @BeforeEach
+    public void before() {
+        stockId = stockRepository.saveAndFlush(new Stock(1L, 100L)).getId();
+    }
+
+    @AfterEach
+    public void after() {
+        stockRepository.deleteAll();
+    }
+
+    @Test
+    public void 캐시에_없으면_DB에서_읽어_올린다() {
+        Assertions.assertThat(stockQuantityCache.findCachedQuantity(stockId)).isEmpty();
+
+        Assertions.assertThat(stockQuantityCache.getQuantity(stockId)).isEqualTo(100);
+        Assertions.assertThat(stockQuantityCache.findCachedQuantity(stockId)).contains(100L);
+    }
+
+    @Test
+    public void 재고가_바뀌면_commit_이후_변경된_수량으로_갱신된다() {
+        stockQuantityCache.getQuantity(stockId);
+
+        pessimisticLockStockService.decrease(stockId, 1L);
+
+        Assertions.assertThat(stockQuantityCache.findCachedQuantity(stockId)).contains(99L);
+    }
+
+    @Test
+    public void 늦게_도착한_오래된_version의_이벤트는_무시한다() {
+        stockQuantityCache.on(new StockChangedEvent(stockId, 50L, 3L));
+        stockQuantityCache.on(new StockChangedEvent(stockId, 80L, 2L)); // version 3보다 먼저 commit된 변경
+
+        Assertions.assertThat(stockQuantityCache.findCachedQuantity(stockId)).contains(50L);
+    }
+
+    @Test
+    public void version이_없는_이벤트는_캐시를_무효화한다() {
+        stockQuantityCache.on(new StockChangedEvent(stockId, 50L, 3L));
+        stockQuantityCache.on(new StockChangedEvent(stockId, 10L)); // 순서를 알 수 없는 수량 (Redis counter 등)
+
+        Assertions.assertThat(stockQuantityCache.findCachedQuantity(stockId)).isEmpty();
+        Assertions.assertThat(stockQuantityCache.getQuantity(stockId)).isEqualTo(100);
+    }
+
+}
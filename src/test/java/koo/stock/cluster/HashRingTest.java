@@ -0,0 +1,34 @@
+package koo.stock.cluster;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+class HashRingTest {
+
+    @Test
+    public void 서버가_추가되면_새_서버로_옮겨가는_id만_소유자가_바뀐다() {
+        HashRing before = new HashRing(List.of("http://a", "http://b"), 128);
+        HashRing after = new HashRing(List.of("http://a", "http://b", "http://c"), 128);
+
+        LongStream.rangeClosed(1, 10_000).forEach(id -> {
+            String owner = after.owner(id);
+
+            if (!owner.equals(before.owner(id))) {
+                Assertions.assertThat(owner).isEqualTo("http://c");
+            }
+        });
+    }
+
+    @Test
+    public void 같은_서버_목록이면_순서와_관계없이_같은_소유자를_고른다() {
+        HashRing ring = new HashRing(List.of("http://a", "http://b"), 128);
+        HashRing reversed = new HashRing(List.of("http://b", "http://a"), 128);
+
+        LongStream.rangeClosed(1, 1_000).forEach(id ->
+                Assertions.assertThat(ring.owner(id)).isEqualTo(reversed.owner(id)));
+    }
+
+}
@@ -0,0 +1,135 @@
+package koo.stock.facade;
+
+import com.sun.net.httpserver.HttpServer;
+import koo.stock.cluster.ClusterMembership;
+import koo.stock.cluster.OwnerUnavailableException;
+import koo.stock.domain.OutOfStockException;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.LongStream;
+
+class OwnershipStockFacadeTest {
+
+    private static final String SELF = "http://self";
+    private static final String SECRET = "forward-secret";
+
+    private final List<Long> localDecreases = new CopyOnWriteArrayList<>();
+    private final List<String> forwardedHeaders = new CopyOnWriteArrayList<>();
+
+    private HttpServer owner; // 다른 소유 서버 역할
+    private volatile int ownerStatus = 200;
+    private volatile long ownerDelayMillis = 0;
+    private ClusterMembership clusterMembership;
+    private OwnershipStockFacade ownershipStockFacade;
+
+    @BeforeEach
+    public void before() throws IOException {
+        owner = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        owner.createContext("/stocks", exchange -> {
+            forwardedHeaders.add(exchange.getRequestHeaders().getFirst(OwnershipStockFacade.FORWARDED_HEADER));
+            try {
+                Thread.sleep(ownerDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            exchange.sendResponseHeaders(ownerStatus, -1);
+            exchange.close();
+        });
+        owner.start();
+
+        String ownerUrl = "http://127.0.0.1:" + owner.getAddress().getPort();
+        clusterMembership = new ClusterMembership(null, SELF, List.of(ownerUrl), "static", 5000, 128);
+        DispatchingStockFacade local = new DispatchingStockFacade(null) {
+            @Override
+            public void decrease(Long id, Long quantity) {
+                localDecreases.add(id);
+            }
+        };
+        ownershipStockFacade = new OwnershipStockFacade(clusterMembership, local, RestClient.builder(), SECRET, 1000, 1000);
+    }
+
+    @AfterEach
+    public void after() {
+        owner.stop(0);
+    }
+
+    @Test
+    public void 소유_서버면_넘기지_않고_바로_처리한다() {
+        Long id = findId(true);
+
+        ownershipStockFacade.decrease(id, 1L, null);
+
+        Assertions.assertThat(localDecreases).containsExactly(id);
+        Assertions.assertThat(forwardedHeaders).isEmpty();
+    }
+
+    @Test
+    public void 소유_서버가_아니면_공유_값을_실어_소유_서버로_넘긴다() {
+        Long id = findId(false);
+
+        ownershipStockFacade.decrease(id, 1L, null);
+
+        Assertions.assertThat(localDecreases).isEmpty();
+        Assertions.assertThat(forwardedHeaders).containsExactly(SECRET);
+    }
+
+    @Test
+    public void 공유_값이_맞는_넘겨받은_요청은_소유_서버가_아니어도_다시_넘기지_않는다() {
+        Long id = findId(false);
+
+        ownershipStockFacade.decrease(id, 1L, SECRET);
+
+        Assertions.assertThat(localDecreases).containsExactly(id);
+        Assertions.assertThat(forwardedHeaders).isEmpty();
+    }
+
+    @Test
+    public void 공유_값이_다른_header는_무시하고_소유_서버로_넘긴다() {
+        Long id = findId(false);
+
+        ownershipStockFacade.decrease(id, 1L, "true");
+
+        Assertions.assertThat(localDecreases).isEmpty();
+        Assertions.assertThat(forwardedHeaders).containsExactly(SECRET);
+    }
+
+    @Test
+    public void 소유_서버의_409_응답은_재고_부족이다() {
+        ownerStatus = 409;
+
+        Assertions.assertThatThrownBy(() -> ownershipStockFacade.decrease(findId(false), 1L, null))
+                .isInstanceOf(OutOfStockException.class);
+    }
+
+    @Test
+    public void 소유_서버가_응답하지_않으면_timeout_후_OwnerUnavailableException이_발생한다() {
+        ownerDelayMillis = 3000; // read timeout(1초)보다 길게
+
+        Assertions.assertThatThrownBy(() -> ownershipStockFacade.decrease(findId(false), 1L, null))
+                .isInstanceOf(OwnerUnavailableException.class);
+    }
+
+    @Test
+    public void 소유_서버의_5xx_응답은_OwnerUnavailableException이다() {
+        ownerStatus = 503;
+
+        Assertions.assertThatThrownBy(() -> ownershipStockFacade.decrease(findId(false), 1L, null))
+                .isInstanceOf(OwnerUnavailableException.class);
+    }
+
+    private Long findId(boolean ownedBySelf) {
+        return LongStream.rangeClosed(1, 10_000)
+                .filter(id -> clusterMembership.isOwner(id) == ownedBySelf)
+                .findFirst()
+                .orElseThrow();
+    }
+
+}
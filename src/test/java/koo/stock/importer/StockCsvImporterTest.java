@@ -0,0 +1,93 @@
+package koo.stock.importer;
+
+import koo.stock.domain.Stock;
+import koo.stock.facade.RedisCounterStockFacade;
+import koo.stock.repository.RedisStockRepository;
+import koo.stock.repository.StockRepository;
+import koo.stock.scheduler.StockWriteBehindFlusher;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+@SpringBootTest
+class StockCsvImporterTest {
+
+    @Autowired
+    private StockCsvImporter stockCsvImporter;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private RedisCounterStockFacade redisCounterStockFacade;
+
+    @Autowired
+    private RedisStockRepository redisStockRepository;
+
+    @Autowired
+    private StockWriteBehindFlusher stockWriteBehindFlusher;
+
+    @AfterEach
+    public void after() {
+        stockRepository.deleteAll();
+    }
+
+    @Test
+    public void CSV의_모든_행을_적재한다() throws Exception {
+        StringBuilder csv = new StringBuilder("id,productId,quantity\n");
+        for (int i = 0; i < 10_000; i++) {
+            csv.append(',').append(i).append(",100\n"); // id가 비어 있으면 새 Stock
+        }
+
+        ImportResult result = stockCsvImporter.importCsv(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertThat(result.rows()).isEqualTo(10_000);
+        Assertions.assertThat(stockRepository.count()).isEqualTo(10_000);
+    }
+
+    @Test
+    public void id가_있으면_수량을_덮어쓴다() throws Exception {
+        Long id = stockRepository.saveAndFlush(new Stock(1L, 100L)).getId();
+        String csv = id + ",1,30\n";
+
+        stockCsvImporter.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertThat(stockRepository.findById(id).orElseThrow().getQuantity()).isEqualTo(30);
+    }
+
+    @Test
+    public void Redis에_올라간_수량도_덮어쓴_수량으로_맞춘다() throws Exception {
+        Long id = stockRepository.saveAndFlush(new Stock(1L, 100L)).getId();
+        redisCounterStockFacade.decrease(id, 1L); // Redis 수량 99, DB에 반영되지 않은 감소량 1
+        String csv = id + ",1,30\n";
+
+        stockCsvImporter.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+        stockWriteBehindFlusher.flush();
+
+        Assertions.assertThat(redisStockRepository.getQuantity(id)).isEqualTo(30);
+        Assertions.assertThat(stockRepository.findById(id).orElseThrow().getQuantity()).isEqualTo(30);
+    }
+
+    @Test
+    public void 형식이_잘못된_행은_건너뛰고_실패로_집계한다() throws Exception {
+        String csv = """
+                id,productId,quantity
+                ,1,10
+                ,2,abc
+                ,3,-1
+                ,4,40
+                """;
+
+        ImportResult result = stockCsvImporter.importCsv(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)));
+
+        Assertions.assertThat(result.rows()).isEqualTo(2);
+        Assertions.assertThat(result.failedRows()).isEqualTo(2);
+        Assertions.assertThat(stockRepository.count()).isEqualTo(2);
+    }
+
+}
@@ -0,0 +1,86 @@
+package koo.stock.intake;
+
+import koo.stock.cache.StockQuantityCache;
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.Stock;
+import koo.stock.repository.StockRepository;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class StockIntakeTest {
+
+    @Autowired
+    private StockIntake stockIntake;
+
+    @Autowired
+    private StockQuantityCache stockQuantityCache;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    private Long stockId;
+
+    @BeforeEach
+    public void before() {
+        stockId = stockRepository.saveAndFlush(new Stock(1L, 100L)).getId();
+    }
+
+    @AfterEach
+    public void after() {
+        stockRepository.deleteAll();
+    }
+
+    @Test
+    public void 접수된_요청은_worker가_모두_처리한다() throws InterruptedException {
+        List<Ticket> tickets = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tickets.add(stockIntake.submit(stockId, 1L));
+        }
+
+        awaitCompletion(tickets);
+
+        Assertions.assertThat(tickets).allMatch(ticket -> ticket.getStatus() == Ticket.Status.SUCCEEDED);
+        Assertions.assertThat(stockRepository.findById(stockId).orElseThrow().getQuantity()).isEqualTo(0);
+    }
+
+    @Test
+    public void 캐시된_재고로_처리될_수_없는_요청은_접수하지_않는다() throws InterruptedException {
+        stockQuantityCache.getQuantity(stockId); // 캐시에 100개를 올린다.
+
+        Ticket ticket = stockIntake.submit(stockId, 60L);
+
+        assertThrows(OutOfStockException.class, () -> stockIntake.submit(stockId, 50L));
+
+        awaitCompletion(List.of(ticket)); // 처리중인 감소와 after의 삭제가 겹치지 않도록
+    }
+
+    @Test
+    public void 수량이_0_이하인_요청은_접수하지_않는다() {
+        assertThrows(IllegalArgumentException.class, () -> stockIntake.submit(stockId, -10L));
+        assertThrows(IllegalArgumentException.class, () -> stockIntake.submit(stockId, 0L));
+    }
+
+    private void awaitCompletion(List<Ticket> tickets) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10); // worker가 멈춰도 테스트가 끝나도록
+
+        while (tickets.stream().anyMatch(ticket -> ticket.getStatus() == Ticket.Status.PENDING)) {
+            if (System.nanoTime() > deadline) {
+                fail("접수된 요청이 제한 시간 안에 처리되지 않았습니다.");
+            }
+
+            Thread.sleep(10);
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package koo.stock.lock;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+class LocalLockRegistryTest {
+
+    private static final long KEY = 1L;
+    private static final long WAIT_MILLIS = 10_000;
+
+    private final List<String> released = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void 기다리는_스레드가_있으면_분산_lock을_해제하지_않고_넘겨준다() throws Exception {
+        LocalLockRegistry<String> registry = new LocalLockRegistry<>(32, held -> true, released::add);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        try {
+            Assertions.assertThat(registry.lock(KEY, WAIT_MILLIS)).isNull();
+            Future<String> waiter = waitInQueue(executorService, registry);
+
+            registry.unlock(KEY, "lock-1");
+
+            String handedOff = waiter.get(10, TimeUnit.SECONDS);
+            Assertions.assertThat(handedOff).isEqualTo("lock-1");
+            Assertions.assertThat(released).isEmpty();
+
+            executorService.submit(() -> registry.unlock(KEY, handedOff)).get(10, TimeUnit.SECONDS); // 기다리는 스레드가 없으면 해제
+            Assertions.assertThat(released).containsExactly("lock-1");
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void 넘겨준_횟수가_maxHandoffs에_이르면_해제하고_다음_스레드는_새로_획득한다() throws Exception {
+        LocalLockRegistry<String> registry = new LocalLockRegistry<>(1, held -> true, released::add);
+        ExecutorService secondThread = Executors.newSingleThreadExecutor();
+        ExecutorService thirdThread = Executors.newSingleThreadExecutor();
+
+        try {
+            registry.lock(KEY, WAIT_MILLIS);
+            Future<String> second = waitInQueue(secondThread, registry);
+            registry.unlock(KEY, "lock-1"); // 첫번째 hand-off
+            Assertions.assertThat(second.get(10, TimeUnit.SECONDS)).isEqualTo("lock-1");
+
+            Future<String> third = waitInQueue(thirdThread, registry);
+            secondThread.submit(() -> registry.unlock(KEY, "lock-1")).get(10, TimeUnit.SECONDS); // 기다리는 스레드가 있어도 해제
+
+            Assertions.assertThat(third.get(10, TimeUnit.SECONDS)).isNull();
+            Assertions.assertThat(released).containsExactly("lock-1");
+        } finally {
+            secondThread.shutdownNow();
+            thirdThread.shutdownNow();
+        }
+    }
+
+    @Test
+    public void 모두_해제하면_key_항목이_제거된다() throws Exception {
+        LocalLockRegistry<String> registry = new LocalLockRegistry<>(32, held -> true, released::add);
+
+        registry.lock(KEY, WAIT_MILLIS);
+        registry.lock(2L, WAIT_MILLIS);
+        Assertions.assertThat(registry.size()).isEqualTo(2);
+
+        registry.unlock(KEY, "lock-1");
+        registry.unlock(2L, null); // 분산 lock을 얻지 못한 경우
+
+        Assertions.assertThat(registry.size()).isZero();
+        Assertions.assertThat(released).containsExactly("lock-1");
+    }
+
+    @Test
+    public void 대기_시간_안에_서버_내부_lock을_얻지_못하면_예외가_발생하고_항목이_남지_않는다() throws Exception {
+        LocalLockRegistry<String> registry = new LocalLockRegistry<>(32, held -> true, released::add);
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        try {
+            registry.lock(KEY, WAIT_MILLIS);
+
+            Future<?> waiter = executorService.submit(() -> registry.lock(KEY, 50));
+            Assertions.assertThatThrownBy(() -> waiter.get(10, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(LockAcquisitionTimeoutException.class);
+
+            registry.unlock(KEY, "lock-1"); // 포기한 스레드에게는 넘겨주지 않는다.
+
+            Assertions.assertThat(released).containsExactly("lock-1");
+            Assertions.assertThat(registry.size()).isZero();
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * 다른 스레드에서 lock을 요청하고, 그 스레드가 서버 내부 lock을 기다리기 시작할 때까지 대기
+     */
+    private Future<String> waitInQueue(ExecutorService executorService, LocalLockRegistry<String> registry) throws InterruptedException {
+        CompletableFuture<Thread> waiting = new CompletableFuture<>();
+        Future<String> future = executorService.submit(() -> {
+            waiting.complete(Thread.currentThread());
+            return registry.lock(KEY, WAIT_MILLIS);
+        });
+
+        Thread thread = waiting.join();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (thread.getState() != Thread.State.TIMED_WAITING && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        return future;
+    }
+
+}
@@ -0,0 +1,103 @@
+package koo.stock.reservation;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.Stock;
+import koo.stock.repository.StockRepository;
+import koo.stock.service.ConditionalUpdateStockService;
+import koo.stock.service.PessimisticLockStockService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class StockReservationServiceTest {
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    @Autowired
+    private PessimisticLockStockService pessimisticLockStockService;
+
+    @Autowired
+    private ConditionalUpdateStockService conditionalUpdateStockService;
+
+    private Long stockId;
+
+    @BeforeEach
+    public void before() {
+        stockId = stockRepository.saveAndFlush(new Stock(1L, 10L)).getId();
+    }
+
+    @AfterEach
+    public void after() {
+        stockRepository.deleteAll();
+    }
+
+    @Test
+    public void 예약을_확정하면_재고가_감소한다() {
+        Reservation reservation = stockReservationService.hold(stockId, 3L);
+
+        Assertions.assertThat(stockReservationService.getAvailableQuantity(stockId)).isEqualTo(7);
+
+        stockReservationService.confirm(reservation.getId());
+
+        Assertions.assertThat(stockRepository.findById(stockId).orElseThrow().getQuantity()).isEqualTo(7);
+        Assertions.assertThat(stockReservationService.getReservedQuantity(stockId)).isEqualTo(0);
+    }
+
+    @Test
+    public void 예약된_수량을_넘어서_예약할_수_없다() {
+        stockReservationService.hold(stockId, 8L);
+
+        assertThrows(OutOfStockException.class, () -> stockReservationService.hold(stockId, 3L));
+    }
+
+    @Test
+    public void 예약된_수량은_다른_감소_방식으로_팔_수_없다() {
+        stockReservationService.hold(stockId, 8L);
+
+        assertThrows(OutOfStockException.class, () -> pessimisticLockStockService.decrease(stockId, 3L));
+        assertThrows(OutOfStockException.class, () -> conditionalUpdateStockService.decrease(stockId, 3L));
+
+        pessimisticLockStockService.decrease(stockId, 2L);
+
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
+        Assertions.assertThat(stock.getQuantity()).isEqualTo(8);
+        Assertions.assertThat(stock.getReserved()).isEqualTo(8);
+    }
+
+    @Test
+    public void 예약을_해제하면_다시_팔_수_있다() {
+        Reservation reservation = stockReservationService.hold(stockId, 8L);
+
+        stockReservationService.release(reservation.getId());
+        pessimisticLockStockService.decrease(stockId, 10L);
+
+        Assertions.assertThat(stockRepository.findById(stockId).orElseThrow().getQuantity()).isEqualTo(0);
+    }
+
+    @Test
+    public void 수량이_0_이하인_예약은_거절한다() {
+        assertThrows(IllegalArgumentException.class, () -> stockReservationService.hold(stockId, -5L));
+        Assertions.assertThat(stockReservationService.getReservedQuantity(stockId)).isEqualTo(0);
+    }
+
+    @Test
+    public void 만료된_예약은_자동으로_해제된다() throws InterruptedException {
+        Reservation reservation = stockReservationService.hold(stockId, 10L, 100);
+
+        Thread.sleep(300);
+
+        Assertions.assertThat(stockReservationService.getReservedQuantity(stockId)).isEqualTo(0);
+        assertThrows(IllegalStateException.class, () -> stockReservationService.confirm(reservation.getId()));
+    }
+
+}
@@ -1,11 +1,24 @@
 package koo.stock.service;
 
+import koo.stock.cache.StockQuantityCache;
+import koo.stock.domain.OutOfStockException;
 import koo.stock.domain.Stock;
+import koo.stock.facade.CoalescingStockFacade;
+import koo.stock.facade.DispatchingStockFacade;
 import koo.stock.facade.LettuceLockStockFacade;
 import koo.stock.facade.NamedLockStockFacade;
 import koo.stock.facade.OptimisticLockStockFacade;
+import koo.stock.facade.RedisCounterStockFacade;
 import koo.stock.facade.RedissonLockStockFacade;
+import koo.stock.facade.ShardedStockFacade;
+import koo.stock.reactive.ReactiveStockService;
+import koo.stock.repository.RedisStockRepository;
+import koo.stock.repository.StockMovementRepository;
 import koo.stock.repository.StockRepository;
+import koo.stock.repository.StockShardRepository;
+import koo.stock.scheduler.StockJournalSnapshotter;
+import koo.stock.scheduler.StockWriteBehindFlusher;
+import koo.stock.strategy.StockStrategyRouter;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,6 +26,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -40,27 +54,92 @@ class StockServiceTest {
     @Autowired
     private RedissonLockStockFacade redissonLockStockFacade;
 
+    @Autowired
+    private ConditionalUpdateStockService conditionalUpdateStockService;
+
+    @Autowired
+    private CoalescingStockFacade coalescingStockFacade;
+
+    @Autowired
+    private DispatchingStockFacade dispatchingStockFacade;
+
+    @Autowired
+    private RedisCounterStockFacade redisCounterStockFacade;
+
+    @Autowired
+    private RedisStockRepository redisStockRepository;
+
+    @Autowired
+    private StockWriteBehindFlusher stockWriteBehindFlusher;
+
+    @Autowired
+    private ShardedStockFacade shardedStockFacade;
+
+    @Autowired
+    private StockQuantityCache stockQuantityCache;
+
+    @Autowired
+    private ReactiveStockService reactiveStockService;
+
+    @Autowired
+    private JournalStockService journalStockService;
+
+    @Autowired
+    private RestockService restockService;
+
+    @Autowired
+    private StockStrategyRouter stockStrategyRouter;
+
+    @Autowired
+    private StockJournalSnapshotter stockJournalSnapshotter;
+
+    @Autowired
+    private StockMovementRepository stockMovementRepository;
+
     @Autowired
     private StockRepository stockRepository;
 
+    @Autowired
+    private StockShardRepository stockShardRepository;
+
+    private Long stockId;
+
     @BeforeEach
     public void before() {
-        stockRepository.saveAndFlush(new Stock(1L, 100L));
+        stockId = stockRepository.saveAndFlush(new Stock(1L, 100L)).getId(); // 다른 테스트가 먼저 만든 Stock이 있어도 id가 1이라고 가정하지 않는다.
     }
 
     @AfterEach
     public void after() {
+        stockShardRepository.deleteAll();
+        stockMovementRepository.deleteAll();
         stockRepository.deleteAll();
     }
 
     @Test
     public void 재고감소() {
-        stockService.decrease(1L, 1L);
+        stockService.decrease(stockId, 1L);
 
-        Stock stock = stockRepository.findById(1L).orElseThrow();
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
         Assertions.assertThat(stock.getQuantity()).isEqualTo(99);
     }
 
+    @Test
+    public void 감소_수량이_0_이하면_DB와_Redis_모두_재고가_늘어나지_않는다() {
+        redisStockRepository.reconcile(stockId, 100L); // 이전 테스트에서 남은 Redis 수량 초기화
+
+        Assertions.assertThatThrownBy(() -> stockService.decrease(stockId, -10L))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> redisStockRepository.decrease(stockId, -10L))
+                .isInstanceOf(IllegalArgumentException.class);
+        Assertions.assertThatThrownBy(() -> redisStockRepository.decreaseAll(Map.of(stockId, 0L)))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        Assertions.assertThat(stockRepository.findById(stockId).orElseThrow().getQuantity()).isEqualTo(100);
+        Assertions.assertThat(redisStockRepository.getQuantity(stockId)).isEqualTo(100);
+        redisStockRepository.remove(stockId);
+    }
+
     @Test
     public void 동시에_100개의_요청_V1() throws InterruptedException { // 멀티 스레드 이용
         int threadCount = 100;
@@ -72,7 +151,7 @@ class StockServiceTest {
         for (int i = 0; i < threadCount; i++) {
             executorService.submit(() -> {
                 try {
-                    stockService.decrease(1L, 1L);
+                    stockService.decrease(stockId, 1L);
                 } finally {
                     latch.countDown();
                 }
@@ -81,7 +160,7 @@ class StockServiceTest {
 
         latch.await();
 
-        Stock stock = stockRepository.findById(1L).orElseThrow();
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
         /**
         테스트 fail 발생 (둘 이상의 스레드가 공유자원에 엑세스하는 Race Condition 때문이다. ex - 스레드1이 select를 하고 update 하기 전 스레드2가 select를 하는 상황 발생)
 
@@ -126,7 +205,7 @@ class StockServiceTest {
         for (int i = 0; i < threadCount; i++) {
             executorService.submit(() -> {
                 try {
-                    pessimisticLockStockService.decrease(1L, 1L);
+                    pessimisticLockStockService.decrease(stockId, 1L);
                 } finally {
                     latch.countDown();
                 }
@@ -135,7 +214,7 @@ class StockServiceTest {
 
         latch.await();
 
-        Stock stock = stockRepository.findById(1L).orElseThrow();
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
 
         Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
     }
@@ -151,7 +230,7 @@ class StockServiceTest {
         for (int i = 0; i < threadCount; i++) {
             executorService.submit(() -> {
                 try {
-                    optimisticLockStockFacade.decrease(1L, 1L);
+                    optimisticLockStockFacade.decrease(stockId, 1L);
                 } catch (InterruptedException e) {
                     throw new RuntimeException(e);
                 } finally {
@@ -162,7 +241,7 @@ class StockServiceTest {
 
         latch.await();
 
-        Stock stock = stockRepository.findById(1L).orElseThrow();
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
 
         Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
     }
@@ -178,7 +257,7 @@ class StockServiceTest {
         for (int i = 0; i < threadCount; i++) {
             executorService.submit(() -> {
                 try {
-                    namedLockStockFacade.decrease(1L, 1L);
+                    namedLockStockFacade.decrease(stockId, 1L);
                 } finally {
                     latch.countDown();
                 }
@@ -187,7 +266,7 @@ class StockServiceTest {
 
         latch.await();
 
-        Stock stock = stockRepository.findById(1L).orElseThrow();
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
 
         Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
     }
@@ -203,7 +282,7 @@ class StockServiceTest {
         for (int i = 0; i < threadCount; i++) {
             executorService.submit(() -> {
                 try {
-                    lettuceLockStockFacade.decrease(1L, 1L);
+                    lettuceLockStockFacade.decrease(stockId, 1L);
                 } catch (RuntimeException | InterruptedException e) {
                     throw new RuntimeException(e);
                 } finally {
@@ -214,7 +293,7 @@ class StockServiceTest {
 
         latch.await();
 
-        Stock stock = stockRepository.findById(1L).orElseThrow();
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
 
         Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
     }
@@ -230,7 +309,7 @@ class StockServiceTest {
         for (int i = 0; i < threadCount; i++) {
             executorService.submit(() -> {
                 try {
-                    redissonLockStockFacade.decrease(1L, 1L);
+                    redissonLockStockFacade.decrease(stockId, 1L);
                 } catch (RuntimeException e) {
                     throw new RuntimeException(e);
                 } finally {
@@ -241,10 +320,280 @@ class StockServiceTest {
 
         latch.await();
 
-        Stock stock = stockRepository.findById(1L).orElseThrow();
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
+
+        Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
+    }
+
+    @Test
+    public void 동시에_100개의_요청_V7() throws InterruptedException {
+        int threadCount = 100;
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> {
+                try {
+                    conditionalUpdateStockService.decrease(stockId, 1L);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
+
+        Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
+    }
+
+    @Test
+    public void 재고보다_많은_수량을_감소하면_실패한다_V7() {
+        assertThrows(RuntimeException.class, () -> conditionalUpdateStockService.decrease(stockId, 101L));
+
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
+        Assertions.assertThat(stock.getQuantity()).isEqualTo(100);
+    }
+
+    @Test
+    public void 동시에_100개의_요청_V8() throws InterruptedException {
+        int threadCount = 100;
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> {
+                try {
+                    coalescingStockFacade.decrease(stockId, 1L);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
 
         Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
     }
 
+    @Test
+    public void 동시에_100개의_요청_V9() throws InterruptedException {
+        redisStockRepository.reconcile(stockId, 100L); // 이전 테스트에서 남은 Redis 수량 초기화
+
+        int threadCount = 100;
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> {
+                try {
+                    redisCounterStockFacade.decrease(stockId, 1L);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+        stockWriteBehindFlusher.flush(); // 비동기로 반영되는 감소량을 바로 DB에 반영
+
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
+
+        Assertions.assertThat(redisCounterStockFacade.getQuantity(stockId)).isEqualTo(0);
+        Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
+    }
+
+    @Test
+    public void 동시에_100개의_요청_V10() throws InterruptedException {
+        shardedStockFacade.split(stockId, 4);
+
+        int threadCount = 100;
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> {
+                try {
+                    shardedStockFacade.decrease(stockId, 1L);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+
+        Assertions.assertThat(shardedStockFacade.getQuantity(stockId)).isEqualTo(0);
+    }
+
+    @Test
+    public void shard로_나누어도_조회_수량은_shard_합계다() {
+        shardedStockFacade.split(stockId, 4);
+        shardedStockFacade.decrease(stockId, 1L);
+
+        Assertions.assertThat(stockQuantityCache.getQuantity(stockId)).isEqualTo(99);
+        Assertions.assertThat(stockRepository.findAvailableQuantity(stockId)).isEqualTo(99); // 캐시를 거치지 않는 조회
+    }
+
+    @Test
+    public void 동시에_100개의_요청_V11() throws InterruptedException {
+        Long id = stockRepository.saveAndFlush(new Stock(2L, 100L)).getId(); // 메모리 잔량이 이전 테스트의 id와 섞이지 않도록 새 Stock 사용
+
+        int threadCount = 100;
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> {
+                try {
+                    journalStockService.decrease(id, 1L);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+        stockJournalSnapshotter.snapshot(); // 주기적으로 반영되는 변경량을 바로 Stock에 반영
+
+        Stock stock = stockRepository.findById(id).orElseThrow();
+
+        Assertions.assertThat(journalStockService.getQuantity(id)).isEqualTo(0);
+        Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
+        Assertions.assertThat(journalStockService.replay(id, 100L)).isEqualTo(0);
+        assertThrows(OutOfStockException.class, () -> journalStockService.decrease(id, 1L));
+    }
+
+    @Test
+    public void journal_감소_수량이_0_이하면_잔량과_기록이_바뀌지_않는다() {
+        Long id = stockRepository.saveAndFlush(new Stock(2L, 100L)).getId(); // 메모리 잔량이 이전 테스트의 id와 섞이지 않도록 새 Stock 사용
+
+        assertThrows(IllegalArgumentException.class, () -> journalStockService.decrease(id, -10L));
+        assertThrows(IllegalArgumentException.class, () -> journalStockService.decrease(id, 0L));
+
+        Assertions.assertThat(journalStockService.getQuantity(id)).isEqualTo(100);
+        Assertions.assertThat(stockMovementRepository.count()).isZero();
+    }
+
+    @Test
+    public void 동시에_100개의_요청_V12() throws InterruptedException {
+        int threadCount = 100;
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> {
+                try {
+                    dispatchingStockFacade.decrease(stockId, 1L);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
+        Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
+    }
+
+    @Test
+    public void 동시에_100개의_요청_V14() throws InterruptedException {
+        int threadCount = 100;
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            executorService.submit(() -> {
+                try {
+                    stockStrategyRouter.decrease(stockId, 1L);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
+        Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
+    }
+
+    @Test
+    public void 감소와_입고가_동시에_일어나도_유실되지_않는다() throws InterruptedException {
+        int threadCount = 100;
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            boolean restock = i % 2 == 0;
+
+            executorService.submit(() -> {
+                try {
+                    if (restock) {
+                        restockService.increase(stockId, 1L);
+                    } else {
+                        pessimisticLockStockService.decrease(stockId, 1L);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
+        Assertions.assertThat(stock.getQuantity()).isEqualTo(100);
+    }
+
+    @Test
+    public void 동시에_100개의_요청_V13() throws InterruptedException {
+        int threadCount = 100;
+        ExecutorService executorService = Executors.newFixedThreadPool(32);
+        CountDownLatch latch = new CountDownLatch(threadCount);
+
+        for (int i = 0; i < threadCount; i++) {
+            String strategy = i % 2 == 0 ? "conditional" : "redisson";
+
+            executorService.submit(() -> {
+                try {
+                    reactiveStockService.decrease(stockId, 1L, strategy).block();
+                } finally {
+                    latch.countDown();
+                }
+            });
+        }
+
+        latch.await();
+
+        Stock stock = stockRepository.findById(stockId).orElseThrow();
+        Assertions.assertThat(stock.getQuantity()).isEqualTo(0);
+    }
+
+    @Test
+    public void 여러_재고를_한번에_감소() {
+        Stock other = stockRepository.saveAndFlush(new Stock(2L, 10L));
+
+        pessimisticLockStockService.decreaseAll(Map.of(stockId, 1L, other.getId(), 10L));
+
+        Assertions.assertThat(stockRepository.findById(stockId).orElseThrow().getQuantity()).isEqualTo(99);
+        Assertions.assertThat(stockRepository.findById(other.getId()).orElseThrow().getQuantity()).isEqualTo(0);
+    }
+
+    @Test
+    public void 여러_재고_중_하나라도_부족하면_모두_감소하지_않는다() {
+        Stock other = stockRepository.saveAndFlush(new Stock(2L, 10L));
+
+        assertThrows(RuntimeException.class, () -> pessimisticLockStockService.decreaseAll(Map.of(stockId, 1L, other.getId(), 11L)));
+
+        Assertions.assertThat(stockRepository.findById(stockId).orElseThrow().getQuantity()).isEqualTo(100);
+        Assertions.assertThat(stockRepository.findById(other.getId()).orElseThrow().getQuantity()).isEqualTo(10);
+    }
 
-}
\ No newline at end of file
+}
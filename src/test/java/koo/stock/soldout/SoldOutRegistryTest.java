@@ -0,0 +1,65 @@
+package koo.stock.soldout;
+
+import koo.stock.domain.OutOfStockException;
+import koo.stock.domain.Stock;
+import koo.stock.event.StockChangedEvent;
+import koo.stock.repository.StockRepository;
+import koo.stock.service.PessimisticLockStockService;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class SoldOutRegistryTest {
+
+    @Autowired
+    private SoldOutRegistry soldOutRegistry;
+
+    @Autowired
+    private PessimisticLockStockService pessimisticLockStockService;
+
+    @Autowired
+    private StockRepository stockRepository;
+
+    private Long stockId;
+
+    @BeforeEach
+    public void before() {
+        stockId = stockRepository.saveAndFlush(new Stock(1L, 1L)).getId();
+    }
+
+    @AfterEach
+    public void after() {
+        stockRepository.deleteAll();
+    }
+
+    @Test
+    public void 재고가_0이_되면_품절로_표시된다() {
+        pessimisticLockStockService.decrease(stockId, 1L);
+
+        assertThrows(OutOfStockException.class, () -> soldOutRegistry.check(stockId));
+    }
+
+    @Test
+    public void 입고되면_품절_표시가_해제된다() {
+        pessimisticLockStockService.decrease(stockId, 1L);
+
+        soldOutRegistry.on(new StockChangedEvent(stockId, 10L));
+
+        Assertions.assertThat(soldOutRegistry.isSoldOut(stockId)).isFalse();
+    }
+
+    @Test
+    public void 입고_이후에_늦게_도착한_품절_이벤트는_무시한다() {
+        soldOutRegistry.on(new StockChangedEvent(stockId, 10L, 2L));
+        soldOutRegistry.on(new StockChangedEvent(stockId, 0L, 1L)); // 입고(version 2)보다 먼저 commit된 감소
+
+        Assertions.assertThat(soldOutRegistry.isSoldOut(stockId)).isFalse();
+    }
+
+}
@@ -0,0 +1,35 @@
+package koo.stock.strategy;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DecayingCountMinSketchTest {
+
+    @Test
+    public void 추정값은_실제_횟수보다_작지_않다() {
+        DecayingCountMinSketch sketch = new DecayingCountMinSketch(64);
+
+        for (long id = 0; id < 1_000; id++) { // 폭보다 많은 id를 넣어 충돌을 만든다.
+            for (int i = 0; i <= id % 10; i++) {
+                sketch.increment(id);
+            }
+        }
+
+        for (long id = 0; id < 1_000; id++) {
+            Assertions.assertThat(sketch.estimate(id)).isGreaterThanOrEqualTo(id % 10 + 1);
+        }
+    }
+
+    @Test
+    public void decay하면_횟수가_절반으로_줄어든다() {
+        DecayingCountMinSketch sketch = new DecayingCountMinSketch(1024);
+
+        for (int i = 0; i < 100; i++) {
+            sketch.increment(1L);
+        }
+        sketch.decay();
+
+        Assertions.assertThat(sketch.estimate(1L)).isEqualTo(50);
+    }
+
+}